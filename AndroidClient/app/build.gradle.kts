@@ -14,6 +14,13 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Single config point for the server every screen talks to (see ApiClient)
+        buildConfigField("String", "API_BASE_URL", "\"http://taptasticitdma.freedynamicdns.org:3000/api/public/\"")
+    }
+
+    buildFeatures {
+        buildConfig = true
     }
 
     buildTypes {
@@ -25,6 +32,17 @@ android {
             )
         }
     }
+    testOptions {
+        unitTests {
+            // Robolectric tests inflate the real layouts
+            isIncludeAndroidResources = true
+            all {
+                // -Ptapapp.budget.<name>=<ms> overrides a latency budget in TimeToFirstRowTest
+                project.properties.filterKeys { it.startsWith("tapapp.") }
+                    .forEach { (key, value) -> it.systemProperty(key, value.toString()) }
+            }
+        }
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
@@ -37,7 +55,14 @@ dependencies {
     implementation(libs.material)
     implementation("com.squareup.picasso:picasso:2.8")
     implementation(libs.recyclerview)
+    implementation(libs.gson)
+    implementation(libs.lifecycle.viewmodel)
+    implementation(libs.lifecycle.livedata)
+    implementation(libs.work.runtime)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    // Real org.json for tests, android.jar only has stubs
+    testImplementation(libs.org.json)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
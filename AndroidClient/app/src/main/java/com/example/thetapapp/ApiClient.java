@@ -0,0 +1,192 @@
+package com.example.thetapapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ ApiClient:
+ The single app-wide transport to the node server. Every screen goes through here instead
+ of opening its own HttpURLConnection, so that:
+ - the base URL comes from one place (BuildConfig.API_BASE_URL),
+ - every request has connect and read timeouts,
+ - responses are gzip-negotiated,
+ - connections are kept alive and handed back to the pool once the response is closed,
+ - connect time and time to first byte go into Metrics, per endpoint,
+ - the server's rate limit is tracked by a RequestGovernor, and nothing is sent while it
+   blocks us (RateLimitedException),
+ - AppWarmup can resolve the host and open a connection ahead of the first request.
+ */
+public final class ApiClient {
+
+    static final int CONNECT_TIMEOUT_MS = 10_000;
+    static final int READ_TIMEOUT_MS = 15_000;
+
+    private static ApiClient s_instance;
+
+    private final String m_baseUrl;
+    private final RequestGovernor m_governor = new RequestGovernor();
+    private final AtomicLong m_bytesReceived = new AtomicLong();
+
+    ApiClient(String baseUrl) {
+        m_baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+    }
+
+    public static synchronized ApiClient get() {
+        if (s_instance == null) {
+            s_instance = new ApiClient(BuildConfig.API_BASE_URL);
+        }
+        return s_instance;
+    }
+
+    // Lets tests point the whole app at a local mock server
+    static synchronized void setInstance(ApiClient client) {
+        s_instance = client;
+    }
+
+    public String getBaseUrl() {
+        return m_baseUrl;
+    }
+
+    public RequestGovernor getGovernor() {
+        return m_governor;
+    }
+
+    // Response body bytes off the wire (compressed) since the app started, for byte budgets
+    public long getBytesReceived() {
+        return m_bytesReceived.get();
+    }
+
+    public ApiResponse get(String path) throws IOException {
+        return execute("GET", path, null, null, null);
+    }
+
+    public ApiResponse get(String path, CancellationToken token) throws IOException {
+        return execute("GET", path, null, null, token);
+    }
+
+    public ApiResponse get(String path, Map<String, String> headers, CancellationToken token) throws IOException {
+        return execute("GET", path, null, headers, token);
+    }
+
+    public ApiResponse postJson(String path, String json, CancellationToken token) throws IOException {
+        return execute("POST", path, json, null, token);
+    }
+
+    /**
+     Looks the server's host up, so the first request finds it in the resolver's cache.
+     Best effort, the request that follows reports any failure.
+     */
+    public void resolveHost() {
+        long start = System.nanoTime();
+        try {
+            InetAddress.getAllByName(new URL(m_baseUrl).getHost());
+            Metrics.get().recordSince("net.warmup.dns", start);
+        } catch (IOException e) {
+            // Offline or no such host, nothing to warm
+        }
+    }
+
+    /**
+     Opens a connection to the server and leaves it in the keep-alive pool for the next
+     request. A HEAD of the server root: it isn't rate limited, so this costs no budget.
+     Best effort, like resolveHost().
+     */
+    public void preconnect() {
+        long start = System.nanoTime();
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(new URL(m_baseUrl), "/").openConnection();
+            conn.setRequestMethod("HEAD");
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            conn.setRequestProperty("Connection", "keep-alive");
+
+            int code = conn.getResponseCode();
+            // Read to the end and close, otherwise the socket is dropped instead of pooled
+            try (InputStream in = code < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+                if (in != null) {
+                    byte[] buffer = new byte[512];
+                    while (in.read(buffer) != -1) {
+                        // discard
+                    }
+                }
+            }
+            Metrics.get().recordSince("net.warmup.connect", start);
+        } catch (IOException e) {
+            if (conn != null) conn.disconnect();
+        }
+    }
+
+    /**
+     Opens the connection and sends the request. The caller owns the returned response and
+     must close it (try-with-resources) so the socket can go back to the keep-alive pool.
+     Cancelling the token (may be null) disconnects the socket from any thread.
+     Throws RequestGovernor.RateLimitedException without sending anything while rate limited.
+     */
+    public ApiResponse execute(String method, String path, String jsonBody, Map<String, String> headers,
+                               CancellationToken token) throws IOException {
+        m_governor.acquire();
+        URL url = new URL(m_baseUrl + path);
+        String metricPrefix = "net." + Metrics.endpointOf(path) + ".";
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        if (token != null) {
+            token.attach(conn);
+        }
+        try {
+            conn.setRequestMethod(method);
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            conn.setUseCaches(false);
+            conn.setRequestProperty("Accept", "application/json");
+            conn.setRequestProperty("Accept-Encoding", "gzip");
+            conn.setRequestProperty("Connection", "keep-alive");
+
+            if (headers != null) {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    conn.setRequestProperty(header.getKey(), header.getValue());
+                }
+            }
+
+            byte[] input = null;
+            if (jsonBody != null) {
+                input = jsonBody.getBytes(StandardCharsets.UTF_8);
+                conn.setDoOutput(true);
+                conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+                conn.setFixedLengthStreamingMode(input.length);
+            }
+
+            // Close to zero when a kept-alive socket is reused
+            long start = System.nanoTime();
+            conn.connect();
+            Metrics.get().recordSince(metricPrefix + "connect", start);
+
+            long sent = System.nanoTime();
+            if (input != null) {
+                try (OutputStream os = conn.getOutputStream()) {
+                    os.write(input, 0, input.length);
+                }
+            }
+
+            int code = conn.getResponseCode();
+            Metrics.get().recordSince(metricPrefix + "ttfb", sent);
+            m_governor.onResponse(code, conn.getHeaderField("X-RateLimit-Limit"),
+                    conn.getHeaderField("X-RateLimit-Remaining"), conn.getHeaderField("X-RateLimit-Reset"),
+                    conn.getHeaderField("Retry-After"));
+            return new ApiResponse(conn, code, token, metricPrefix, m_bytesReceived);
+        } catch (IOException e) {
+            // Nothing was handed to the caller, so this socket can't be reused
+            conn.disconnect();
+            if (token != null) {
+                token.detach(conn);
+            }
+            throw e;
+        }
+    }
+}
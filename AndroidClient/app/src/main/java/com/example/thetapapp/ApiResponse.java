@@ -0,0 +1,180 @@
+package com.example.thetapapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ ApiResponse:
+ A response handed out by ApiClient.
+ The body is already un-gzipped, and for error codes it is the error stream so callers
+ can read the server's JSON error message the same way as a normal response.
+ Closing drains whatever is left of the body so the connection can be reused.
+ It also records the body's wire size, the time spent waiting on the network for it
+ (download) and the rest of the time until close (decode) into Metrics.
+ */
+public class ApiResponse implements Closeable {
+
+    private static final int DRAIN_BUFFER_SIZE = 8 * 1024;
+
+    private final HttpURLConnection m_conn;
+    private final int m_code;
+    private final CancellationToken m_token;
+    private final String m_metricPrefix;
+    private final AtomicLong m_bytesReceived;
+    private InputStream m_body;
+    private MeteredInputStream m_wire;
+    private long m_bodyStart;
+    private boolean m_closed;
+
+    // bytesReceived (may be null) is added to once the response is closed, drained bytes included
+    ApiResponse(HttpURLConnection conn, int code, CancellationToken token, String metricPrefix,
+                AtomicLong bytesReceived) {
+        m_conn = conn;
+        m_code = code;
+        m_token = token;
+        m_metricPrefix = metricPrefix;
+        m_bytesReceived = bytesReceived;
+    }
+
+    public int getCode() {
+        return m_code;
+    }
+
+    public boolean isSuccessful() {
+        return m_code >= 200 && m_code < 300;
+    }
+
+    public String getHeader(String name) {
+        return m_conn.getHeaderField(name);
+    }
+
+    public InputStream body() throws IOException {
+        if (m_body == null) {
+            InputStream raw = isSuccessful() ? m_conn.getInputStream() : m_conn.getErrorStream();
+            if (raw == null) {
+                raw = new ByteArrayInputStream(new byte[0]);
+            }
+            m_bodyStart = System.nanoTime();
+            m_wire = new MeteredInputStream(raw);
+            raw = m_wire;
+            if ("gzip".equalsIgnoreCase(m_conn.getContentEncoding())) {
+                raw = new GZIPInputStream(raw);
+            }
+            m_body = raw;
+        }
+        return m_body;
+    }
+
+    public String bodyString() throws IOException {
+        InputStream in = body();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     Drops the socket instead of returning it to the pool, e.g. when the request is abandoned
+     halfway through a large body and draining it would cost more than a new connection.
+     */
+    public void disconnect() {
+        if (!m_closed) {
+            m_closed = true;
+            countBytes();
+        }
+        m_conn.disconnect();
+        detachToken();
+    }
+
+    @Override
+    public void close() {
+        if (m_closed) return;
+        m_closed = true;
+
+        recordBodyMetrics();
+
+        if (m_token != null && m_token.isCancelled()) {
+            // Already disconnected by the token, nothing left to drain
+            countBytes();
+            return;
+        }
+
+        try {
+            InputStream in = body();
+            byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+            while (in.read(buffer) != -1) {
+                // drain so the keep-alive connection can be reused
+            }
+            in.close();
+        } catch (IOException e) {
+            m_conn.disconnect();
+        }
+        countBytes();
+        detachToken();
+    }
+
+    private void countBytes() {
+        if (m_wire != null && m_bytesReceived != null) {
+            m_bytesReceived.addAndGet(m_wire.bytes);
+        }
+    }
+
+    // Only for bodies the caller actually read, a drained-and-dropped body says nothing about decoding
+    private void recordBodyMetrics() {
+        if (m_wire == null || m_metricPrefix == null || !isSuccessful()) return;
+
+        long total = System.nanoTime() - m_bodyStart;
+        Metrics metrics = Metrics.get();
+        metrics.recordBytes(m_metricPrefix + "bytes", m_wire.bytes);
+        metrics.recordNanos(m_metricPrefix + "download", m_wire.readNanos);
+        metrics.recordNanos(m_metricPrefix + "decode", total - m_wire.readNanos);
+    }
+
+    /**
+     Counts the bytes coming off the socket and the time spent blocked reading them.
+     With a streaming decoder the two overlap, so this is what separates download from decode.
+     */
+    private static final class MeteredInputStream extends FilterInputStream {
+        long bytes;
+        long readNanos;
+
+        MeteredInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            readNanos += System.nanoTime() - start;
+            if (b != -1) bytes++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            int read = super.read(buffer, offset, length);
+            readNanos += System.nanoTime() - start;
+            if (read > 0) bytes += read;
+            return read;
+        }
+    }
+
+    private void detachToken() {
+        if (m_token != null) {
+            m_token.detach(m_conn);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.thetapapp;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ AppWarmup:
+ Work started when MainActivity opens, while the user is still on it, so the list screen
+ finds its data on the way or already there instead of starting cold. Not at process start:
+ a process started by WorkManager for CatalogSyncWorker would spend a request on a list
+ nobody opens, and its revalidation would make the worker skip the sync and thumbnails.
+ - the API host is resolved and the on-device catalog mapped,
+ - the list's first request goes out speculatively (TapCatalogRepository.warmUp()), the
+   list screen then attaches to it; when there is nothing worth fetching a connection is
+   opened instead, for whatever the user does next,
+ - ThumbnailLoader (Picasso, OkHttp, the disk cache) and TapDetailCache are built on a
+   worker rather than on the main thread by the first row that needs them.
+ Also times process start to the first list row (startup.first_row), see onFirstRow().
+ */
+public final class AppWarmup {
+
+    // Never cancelled, a speculative request that is already out is worth finishing
+    private static final CancellationToken s_token = new CancellationToken();
+    private static final AtomicBoolean s_firstRowRecorded = new AtomicBoolean();
+
+    private AppWarmup() {
+    }
+
+    public static void start(Context context) {
+        Context app = context.getApplicationContext();
+        TaskScheduler scheduler = TaskScheduler.get();
+
+        scheduler.submit(TaskScheduler.Priority.PREFETCH, s_token, () -> {
+            long start = System.nanoTime();
+            ApiClient api = ApiClient.get();
+            api.resolveHost();
+            boolean fetching = false;
+            try {
+                fetching = TapCatalogRepository.get(app).warmUp(s_token);
+            } catch (IOException e) {
+                // The list screen asks again and reports it
+                e.printStackTrace();
+            }
+            // The speculative request already opened one; a second connection first would only delay it
+            if (!fetching) {
+                api.preconnect();
+            }
+            Metrics.get().recordSince("startup.warmup", start);
+        });
+
+        // A lane of its own, so it doesn't queue behind the request above
+        scheduler.submit(TaskScheduler.Priority.BACKGROUND_SYNC, () -> {
+            ThumbnailLoader.get(app);
+            TapDetailCache.get();
+        });
+    }
+
+    /**
+     Called by the list screen once its first rows are laid out. The first call in a
+     process records how long that took since the process started.
+     */
+    public static void onFirstRow() {
+        if (s_firstRowRecorded.getAndSet(true)) return;
+        long sinceStartMs = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+        Metrics.get().recordNanos("startup.first_row", sinceStartMs * 1_000_000L);
+    }
+}
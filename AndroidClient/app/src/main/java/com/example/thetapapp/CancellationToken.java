@@ -0,0 +1,74 @@
+package com.example.thetapapp;
+
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ CancellationToken:
+ Lets whoever started a load abandon it, including a request that is already on the wire.
+ ApiClient attaches the connection it opens, cancel() disconnects it, which makes the
+ blocked connect/read on the worker thread fail straight away instead of finishing the
+ download for a screen that's gone.
+ One token can cover several requests, e.g. everything a ViewModel has in flight.
+ */
+public class CancellationToken {
+
+    private boolean m_cancelled;
+    private final List<HttpURLConnection> m_connections = new ArrayList<>();
+    private final List<Runnable> m_onCancel = new ArrayList<>();
+
+    public synchronized boolean isCancelled() {
+        return m_cancelled;
+    }
+
+    public void throwIfCancelled() throws InterruptedIOException {
+        if (isCancelled()) {
+            throw new InterruptedIOException("Cancelled");
+        }
+    }
+
+    public void cancel() {
+        List<HttpURLConnection> connections;
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (m_cancelled) return;
+            m_cancelled = true;
+            connections = new ArrayList<>(m_connections);
+            m_connections.clear();
+            listeners = new ArrayList<>(m_onCancel);
+            m_onCancel.clear();
+        }
+        for (HttpURLConnection connection : connections) {
+            connection.disconnect();
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    // Lets TaskScheduler drop queued work; returns false (and doesn't add) if already cancelled
+    synchronized boolean addOnCancel(Runnable listener) {
+        if (m_cancelled) return false;
+        m_onCancel.add(listener);
+        return true;
+    }
+
+    synchronized void removeOnCancel(Runnable listener) {
+        m_onCancel.remove(listener);
+    }
+
+    // A token that is already cancelled disconnects the new connection straight away
+    synchronized void attach(HttpURLConnection connection) throws InterruptedIOException {
+        if (m_cancelled) {
+            connection.disconnect();
+            throw new InterruptedIOException("Cancelled");
+        }
+        m_connections.add(connection);
+    }
+
+    synchronized void detach(HttpURLConnection connection) {
+        m_connections.remove(connection);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.thetapapp;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.squareup.picasso.Callback;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ CatalogSyncWorker:
+ Periodic background refresh, so ViewAllTapsActivity and QueryTapsActivity open on a fresh
+ on-device catalog with nothing to wait for. A run revalidates the catalog (usually a small
+ delta or nothing at all) and then warms the disk cache with the first screen of thumbnails.
+ - Runs on an unmetered network while charging or while idle. WorkManager constraints
+   can't say "or", so there are two periodic requests; whichever runs second finds the
+   catalog fresh and does nothing.
+ - Skips itself while the rate limit budget is low, the user's own requests come first.
+ - A run stops after RUN_BUDGET_MS or once RUN_BUDGET_BYTES have come in, checked between
+   steps, so it never turns into a big download the user didn't ask for.
+ Runs on TaskScheduler's BACKGROUND_SYNC worker (see TapApplication).
+ */
+public class CatalogSyncWorker extends Worker {
+
+    static final String WORK_WHILE_CHARGING = "catalog-sync-charging";
+    static final String WORK_WHILE_IDLE = "catalog-sync-idle";
+
+    // Well inside QUERY_MAX_STALENESS_MS, so the query screen can trust the cached catalog
+    static final long INTERVAL_HOURS = 3;
+
+    static final long RUN_BUDGET_MS = 60 * 1000L;
+    static final long RUN_BUDGET_BYTES = 2L * 1024 * 1024;
+
+    // About a screen and a half of list rows
+    static final int WARM_THUMBNAILS = 20;
+
+    // A catalog checked this recently (by the other request, or the app itself) is left alone
+    static final long MIN_AGE_MS = 60 * 60 * 1000L;
+
+    private final CancellationToken m_token = new CancellationToken();
+
+    public CatalogSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     Registers the periodic sync. Safe to call on every start, existing schedules are kept.
+     */
+    public static void schedule(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.enqueueUniquePeriodicWork(WORK_WHILE_CHARGING, ExistingPeriodicWorkPolicy.KEEP,
+                request(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.UNMETERED)
+                        .setRequiresCharging(true)
+                        .build()));
+        workManager.enqueueUniquePeriodicWork(WORK_WHILE_IDLE, ExistingPeriodicWorkPolicy.KEEP,
+                request(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.UNMETERED)
+                        .setRequiresDeviceIdle(true)
+                        .build()));
+    }
+
+    private static PeriodicWorkRequest request(Constraints constraints) {
+        return new PeriodicWorkRequest.Builder(CatalogSyncWorker.class, INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        TapCatalogRepository repository = TapCatalogRepository.get(context);
+        ApiClient api = ApiClient.get();
+        if (api.getGovernor().isBudgetLow() || repository.isValidatedWithin(MIN_AGE_MS)) {
+            return Result.success();
+        }
+
+        ThumbnailLoader loader = ThumbnailLoader.get(context);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(RUN_BUDGET_MS);
+        long startApiBytes = api.getBytesReceived();
+        long startImageBytes = loader.getDownloadedBytes();
+        Runnable cancelTimeout = TaskScheduler.get().schedule(TaskScheduler.Priority.PREFETCH,
+                RUN_BUDGET_MS, null, m_token::cancel);
+
+        try {
+            List<Tap> fresh = repository.revalidate(m_token);
+            List<Tap> taps = fresh != null ? fresh : repository.loadCached();
+
+            int sizePx = context.getResources().getDimensionPixelSize(R.dimen.tap_thumbnail_size);
+            for (int i = 0; i < Math.min(WARM_THUMBNAILS, taps.size()); i++) {
+                long bytes = api.getBytesReceived() - startApiBytes + loader.getDownloadedBytes() - startImageBytes;
+                long left = deadline - System.nanoTime();
+                if (isStopped() || m_token.isCancelled() || bytes >= RUN_BUDGET_BYTES || left <= 0) break;
+
+                String url = ImageVariants.urlFor(taps.get(i), sizePx);
+                if (url == null || url.isEmpty()) continue;
+                if (!warm(loader, url, sizePx, left)) break;
+            }
+            return Result.success();
+
+        } catch (IOException e) {
+            // Out of time or rate limited, the next period picks it up; otherwise back off and retry
+            if (m_token.isCancelled() || api.getGovernor().isBlocked()) return Result.success();
+            e.printStackTrace();
+            return Result.retry();
+
+        } finally {
+            cancelTimeout.run();
+            Metrics.get().recordSince("sync.run", start);
+            Metrics.get().recordBytes("sync.bytes",
+                    api.getBytesReceived() - startApiBytes + loader.getDownloadedBytes() - startImageBytes);
+        }
+    }
+
+    // Blocks until the thumbnail is cached or failed, false when that took longer than timeoutNanos
+    private static boolean warm(ThumbnailLoader loader, String url, int sizePx, long timeoutNanos) {
+        CountDownLatch done = new CountDownLatch(1);
+        loader.warmThumbnail(url, sizePx, new Callback() {
+            @Override
+            public void onSuccess() {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                done.countDown();
+            }
+        });
+        try {
+            return done.await(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        // Constraints no longer met (e.g. unplugged), drop the request mid-flight
+        m_token.cancel();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.thetapapp;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
+import android.widget.TextView;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ FacetSpinnerAdapter:
+ Spinner adapter for a QueryTapsActivity filter that shows next to each option how many
+ taps it would match ("Metal (12)") and disables the options that would match none.
+ The first entry is the "Select ..." prompt and is never counted. getItem() still returns
+ the plain value, so reading the selection is unchanged.
+ Until counts are known it behaves like a plain string-array adapter.
+ */
+public class FacetSpinnerAdapter extends ArrayAdapter<CharSequence> {
+
+    private Map<String, Integer> m_counts;
+
+    public FacetSpinnerAdapter(Context context, CharSequence[] values) {
+        super(context, android.R.layout.simple_spinner_item, Arrays.asList(values));
+        setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+    }
+
+    // Counts per value, null to go back to plain labels
+    public void setCounts(Map<String, Integer> counts) {
+        m_counts = counts;
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return position == 0 || m_counts == null || count(position) > 0;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        return label(super.getView(position, convertView, parent), position);
+    }
+
+    @Override
+    public View getDropDownView(int position, View convertView, ViewGroup parent) {
+        return label(super.getDropDownView(position, convertView, parent), position);
+    }
+
+    private View label(View view, int position) {
+        TextView text = (TextView) view;
+        if (position > 0 && m_counts != null) {
+            text.setText(String.format(Locale.US, "%s (%d)", getItem(position), count(position)));
+        }
+        text.setEnabled(isEnabled(position));
+        return view;
+    }
+
+    private int count(int position) {
+        Integer count = m_counts.get(String.valueOf(getItem(position)));
+        return count != null ? count : 0;
+    }
+}
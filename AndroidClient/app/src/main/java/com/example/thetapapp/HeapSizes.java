@@ -0,0 +1,37 @@
+package com.example.thetapapp;
+
+import java.util.Collection;
+
+/**
+ HeapSizes:
+ Size estimates for what the caches hold, used by MemoryBudget and the caches that report
+ to it. Plain Java, so the indexes using it still build in the benchmark module.
+ Attribute values are pooled by the decoder and shared between taps, so only the per-tap
+ strings are counted.
+ */
+public final class HeapSizes {
+
+    static final int TAP_BYTES = 48;
+
+    private HeapSizes() {
+    }
+
+    static long estimateBytes(Tap tap) {
+        return TAP_BYTES + estimateBytes(tap.getId()) + estimateBytes(tap.getTitle())
+                + estimateBytes(tap.getDescription()) + estimateBytes(tap.getImage_url())
+                + estimateBytes(tap.getImage_variants());
+    }
+
+    static long estimateBytes(Collection<Tap> taps) {
+        // The list's own array, then the taps
+        long bytes = 16 + 4L * taps.size();
+        for (Tap tap : taps) {
+            bytes += estimateBytes(tap);
+        }
+        return bytes;
+    }
+
+    static long estimateBytes(String value) {
+        return value == null ? 0 : 16 + 2L * value.length();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.thetapapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ Histogram:
+ A fixed-size, lock-free histogram for latencies and sizes, cheap enough to record on the
+ main thread (a few atomic adds, no allocation).
+ Values are bucketed log-linearly: every power of two is split into SUB_BUCKETS equal
+ buckets, so a percentile is off by at most 1/SUB_BUCKETS (12.5%) of its value, from
+ 1 up to Long.MAX_VALUE. Negative values count as 0.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final String m_unit;
+    private final AtomicLongArray m_counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong m_count = new AtomicLong();
+    private final AtomicLong m_sum = new AtomicLong();
+    private final AtomicLong m_max = new AtomicLong();
+
+    public Histogram(String unit) {
+        m_unit = unit;
+    }
+
+    public String getUnit() {
+        return m_unit;
+    }
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        m_counts.incrementAndGet(bucketOf(value));
+        m_count.incrementAndGet();
+        m_sum.addAndGet(value);
+        long max;
+        while (value > (max = m_max.get()) && !m_max.compareAndSet(max, value)) {
+            // retry until the max sticks
+        }
+    }
+
+    public long getCount() {
+        return m_count.get();
+    }
+
+    public long getMax() {
+        return m_max.get();
+    }
+
+    public double getMean() {
+        long count = m_count.get();
+        return count == 0 ? 0 : (double) m_sum.get() / count;
+    }
+
+    /**
+     The value at the given percentile (0-100), as the upper edge of the bucket it falls in,
+     never more than the largest recorded value. 0 when nothing has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        long count = m_count.get();
+        if (count == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += m_counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBound(bucket), m_max.get());
+            }
+        }
+        return m_max.get();
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            m_counts.set(bucket, 0);
+        }
+        m_count.set(0);
+        m_sum.set(0);
+        m_max.set(0);
+    }
+
+    // Values below SUB_BUCKETS get a bucket each, above that the top SUB_BUCKET_BITS+1 bits pick it
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        long upper = ((subBucket + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.thetapapp;
+
+/**
+ ImageVariants:
+ Picks which image of a tap to download for a view of a given size. The server makes
+ downscaled copies of every upload (Tap.image_variants, "<url> <size>w, ..." smallest first,
+ a copy's shorter side being <size> px) next to the original in image_url.
+ - Sizes are in pixels, so the view's density is already in them: a 100dp row asks for
+   100px on mdpi and 300px on xxhdpi, and gets the 128 and 512 copies respectively.
+ - The smallest copy at least as big as the view wins; when none is, or the tap has none
+   (uploaded before they were made), it's the original.
+ */
+public final class ImageVariants {
+
+    private ImageVariants() {
+    }
+
+    /**
+     URL to load for a sizePx x sizePx view, null when the tap has no image.
+     */
+    public static String urlFor(Tap tap, int sizePx) {
+        String variant = pick(tap.getImage_variants(), sizePx);
+        return variant != null ? variant : tap.getImage_url();
+    }
+
+    // Smallest listed variant covering sizePx, null when none does. Skips entries it can't read.
+    static String pick(String variants, int sizePx) {
+        if (variants == null || variants.isEmpty()) return null;
+
+        String best = null;
+        int bestSize = Integer.MAX_VALUE;
+        int start = 0;
+        while (start < variants.length()) {
+            int end = variants.indexOf(',', start);
+            if (end < 0) end = variants.length();
+
+            String entry = variants.substring(start, end).trim();
+            int space = entry.lastIndexOf(' ');
+            if (space > 0 && entry.endsWith("w")) {
+                int size = parseSize(entry.substring(space + 1, entry.length() - 1));
+                if (size >= sizePx && size < bestSize) {
+                    best = entry.substring(0, space).trim();
+                    bestSize = size;
+                }
+            }
+            start = end + 1;
+        }
+        return best;
+    }
+
+    private static int parseSize(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -3,28 +3,37 @@ package com.example.thetapapp;
 import androidx.appcompat.app.AppCompatActivity;
 import android.content.Intent;
 import android.os.Bundle;
+import android.view.View;
 import android.widget.Button;
 
 /**
  MainActivity:
  home screen for the Tap App.
- two main features:
+ main features:
  - Viewing all available taps.
+ - Searching them by words in the title or description.
  - Querying taps based on specific filters.
  */
 public class MainActivity extends AppCompatActivity {
 
     // Buttons for navigation to different screens
-    Button btnViewAllTaps, btnQueryTap;
+    Button btnViewAllTaps, btnSearchTaps, btnQueryTap, btnMetrics;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        // Start the list's data on its way while the user is on this screen, not again when it is recreated
+        if (savedInstanceState == null) {
+            AppWarmup.start(this);
+        }
+
         // Initialize UI components
         btnViewAllTaps = findViewById(R.id.btnViewAllTaps);
+        btnSearchTaps = findViewById(R.id.btnSearchTaps);
         btnQueryTap = findViewById(R.id.btnQueryTap);
+        btnMetrics = findViewById(R.id.btnMetrics);
 
         // Go to "View All Taps" screen
         btnViewAllTaps.setOnClickListener(v -> {
@@ -32,10 +41,25 @@ public class MainActivity extends AppCompatActivity {
             startActivity(intent);
         });
 
+        // Go to "Search Taps" screen
+        btnSearchTaps.setOnClickListener(v -> {
+            Intent intent = new Intent(MainActivity.this, SearchTapsActivity.class);
+            startActivity(intent);
+        });
+
         // Go to "Query Tap" screen
         btnQueryTap.setOnClickListener(v -> {
             Intent intent = new Intent(MainActivity.this, QueryTapsActivity.class);
             startActivity(intent);
         });
+
+        // Field testers' debug builds get the metrics screen
+        if (BuildConfig.DEBUG) {
+            btnMetrics.setVisibility(View.VISIBLE);
+            btnMetrics.setOnClickListener(v -> {
+                Intent intent = new Intent(MainActivity.this, MetricsActivity.class);
+                startActivity(intent);
+            });
+        }
     }
 }
@@ -0,0 +1,179 @@
+package com.example.thetapapp;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ MemoryBudget:
+ One budget for the app's in-memory caches, so the app gives memory back before the
+ system kills it. Every cache registers with how much it holds (an estimate) and how to
+ shrink, plus what getting its entries back would cost:
+ - REDECODE: decoded thumbnails, the images are still in the disk cache,
+ - REBUILD: indexes derived from the catalog on the device,
+ - RELOAD: catalog rows on the heap, the snapshot file has them too,
+ - REFETCH: tap details, only the server has them (and a request costs rate limit budget).
+ On onTrimMemory()/onLowMemory() the total is trimmed to a share of the budget that gets
+ smaller as the pressure grows, evicting the cheapest caches first. checkBudget() does the
+ same for the budget itself after a cache grew.
+ usage() reports what every cache holds, MetricsActivity shows it.
+ Registered with the Application in TapApplication.
+ */
+public final class MemoryBudget implements ComponentCallbacks2 {
+
+    /**
+     What getting a cache's entries back costs, cheapest first; also the eviction order.
+     */
+    public enum Cost {
+        REDECODE, REBUILD, RELOAD, REFETCH
+    }
+
+    /**
+     A cache that can tell its size and shrink on request.
+     */
+    public interface Trimmable {
+        // Heap bytes held, an estimate
+        long sizeBytes();
+
+        // Evicts until at most maxBytes are held; 0 drops everything that can be got back
+        void trimToSize(long maxBytes);
+    }
+
+    private static final class Registration {
+        final String name;
+        final Cost cost;
+        final Trimmable cache;
+
+        Registration(String name, Cost cost, Trimmable cache) {
+            this.name = name;
+            this.cost = cost;
+            this.cache = cache;
+        }
+    }
+
+    // A quarter of the heap for caches, the rest is the app's
+    static final int HEAP_SHARE_DIVISOR = 4;
+
+    private static MemoryBudget s_instance;
+
+    private final long m_budgetBytes;
+    // Sorted by cost, registration order within the same cost
+    private final List<Registration> m_caches = new ArrayList<>();
+
+    MemoryBudget(long budgetBytes) {
+        m_budgetBytes = budgetBytes;
+    }
+
+    public static synchronized MemoryBudget get() {
+        if (s_instance == null) {
+            s_instance = new MemoryBudget(Runtime.getRuntime().maxMemory() / HEAP_SHARE_DIVISOR);
+        }
+        return s_instance;
+    }
+
+    public synchronized void register(String name, Cost cost, Trimmable cache) {
+        int at = m_caches.size();
+        while (at > 0 && m_caches.get(at - 1).cost.compareTo(cost) > 0) {
+            at--;
+        }
+        m_caches.add(at, new Registration(name, cost, cache));
+    }
+
+    public long getBudgetBytes() {
+        return m_budgetBytes;
+    }
+
+    /**
+     Bytes held per cache, in eviction order.
+     */
+    public Map<String, Long> usage() {
+        Map<String, Long> usage = new LinkedHashMap<>();
+        for (Registration registration : registrations()) {
+            usage.put(registration.name, registration.cache.sizeBytes());
+        }
+        return usage;
+    }
+
+    public long totalBytes() {
+        long total = 0;
+        for (Registration registration : registrations()) {
+            total += registration.cache.sizeBytes();
+        }
+        return total;
+    }
+
+    /**
+     Trims back to the budget if the caches together have grown past it.
+     */
+    public void checkBudget() {
+        trimTo(m_budgetBytes);
+    }
+
+    /**
+     Evicts from the cheapest caches first until at most targetBytes are held in total.
+     Returns the bytes freed.
+     */
+    public long trimTo(long targetBytes) {
+        List<Registration> caches = registrations();
+        long[] sizes = new long[caches.size()];
+        long total = 0;
+        for (int i = 0; i < caches.size(); i++) {
+            sizes[i] = caches.get(i).cache.sizeBytes();
+            total += sizes[i];
+        }
+
+        long excess = total - Math.max(0, targetBytes);
+        if (excess <= 0) return 0;
+
+        long freed = 0;
+        for (int i = 0; i < caches.size() && freed < excess; i++) {
+            if (sizes[i] == 0) continue;
+            Trimmable cache = caches.get(i).cache;
+            cache.trimToSize(Math.max(0, sizes[i] - (excess - freed)));
+            freed += Math.max(0, sizes[i] - cache.sizeBytes());
+        }
+        Metrics.get().recordBytes("memory.trimmed", freed);
+        return freed;
+    }
+
+    /**
+     Share of the budget kept at an onTrimMemory() level: still running (the user may be
+     looking at the list) keeps more than being in the background, where the system goes
+     through processes from the least recently used end.
+     */
+    static long targetFor(int level, long budgetBytes) {
+        if (level >= TRIM_MEMORY_COMPLETE) return 0;
+        if (level >= TRIM_MEMORY_MODERATE) return budgetBytes / 8;
+        if (level >= TRIM_MEMORY_BACKGROUND) return budgetBytes / 4;
+        // Nothing on screen: the thumbnails, mostly
+        if (level >= TRIM_MEMORY_UI_HIDDEN) return budgetBytes / 2;
+        if (level >= TRIM_MEMORY_RUNNING_CRITICAL) return budgetBytes / 4;
+        if (level >= TRIM_MEMORY_RUNNING_LOW) return budgetBytes / 2;
+        if (level >= TRIM_MEMORY_RUNNING_MODERATE) return budgetBytes * 3 / 4;
+        return budgetBytes;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        trimTo(targetFor(level, m_budgetBytes));
+    }
+
+    @Override
+    public void onLowMemory() {
+        trimTo(0);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    private synchronized List<Registration> registrations() {
+        return new ArrayList<>(m_caches);
+    }
+}
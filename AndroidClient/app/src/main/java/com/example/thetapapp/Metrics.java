@@ -0,0 +1,115 @@
+package com.example.thetapapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ Metrics:
+ App-wide registry of named histograms, filled in by the code that does the work:
+ - net.<endpoint>.connect / ttfb / download / decode (ms) and .bytes, recorded by
+   ApiClient and ApiResponse for taps, taps?page, taps/changes, taps/query, taps/batch
+   and taps/:id,
+ - list.bind (ms) from TapListAdapter, image.load (ms) from TapItemButton,
+   search.query (ms) from TapSearchViewModel and query.facets (ms) from QueryFacetsViewModel,
+ - sync.run (ms) and sync.bytes per background sync from CatalogSyncWorker,
+ - memory.trimmed (bytes) per MemoryBudget trim,
+ - startup.first_row (ms, process start to the first list row) and startup.warmup (ms) from
+   AppWarmup, list.first_row (ms, list screen opened to its first row) from
+   ViewAllTapsActivity, net.warmup.dns and net.warmup.connect (ms) from ApiClient.
+ Durations are kept in microseconds and shown in ms. MetricsActivity shows the
+ percentiles and exports dump() to a file testers can send us.
+ */
+public final class Metrics {
+
+    public static final String UNIT_MS = "ms";
+    public static final String UNIT_BYTES = "bytes";
+
+    static final double[] PERCENTILES = {50, 90, 99};
+
+    private static final Metrics s_instance = new Metrics();
+
+    private final Map<String, Histogram> m_histograms = new ConcurrentHashMap<>();
+
+    Metrics() {
+    }
+
+    public static Metrics get() {
+        return s_instance;
+    }
+
+    public Histogram histogram(String name, String unit) {
+        return m_histograms.computeIfAbsent(name, key -> new Histogram(unit));
+    }
+
+    // Duration since startNanos (a System.nanoTime() value), kept in microseconds
+    public void recordSince(String name, long startNanos) {
+        recordNanos(name, System.nanoTime() - startNanos);
+    }
+
+    public void recordNanos(String name, long nanos) {
+        histogram(name, UNIT_MS).record(nanos / 1000);
+    }
+
+    public void recordBytes(String name, long bytes) {
+        histogram(name, UNIT_BYTES).record(bytes);
+    }
+
+    public void reset() {
+        for (Histogram histogram : m_histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     Groups /api/public paths into the endpoints we report on, so every tap id
+     doesn't get its own histogram.
+     */
+    static String endpointOf(String path) {
+        int query = path.indexOf('?');
+        String route = query >= 0 ? path.substring(0, query) : path;
+        if (route.equals("taps")) {
+            return path.contains("limit=") || path.contains("cursor=") ? "taps?page" : "taps";
+        }
+        if (route.equals("taps/query") || route.equals("taps/changes") || route.equals("taps/batch")) {
+            return route;
+        }
+        if (route.startsWith("taps/")) return "taps/:id";
+        return route;
+    }
+
+    /**
+     One line per histogram: count, p50/p90/p99, mean and max, sorted by name.
+     */
+    public String dump() {
+        List<String> names = new ArrayList<>(m_histograms.keySet());
+        Collections.sort(names);
+
+        StringBuilder out = new StringBuilder();
+        for (String name : names) {
+            Histogram histogram = m_histograms.get(name);
+            if (histogram.getCount() == 0) continue;
+
+            out.append(String.format(Locale.US, "%-28s n=%-6d", name, histogram.getCount()));
+            for (double percentile : PERCENTILES) {
+                out.append(String.format(Locale.US, " p%.0f=%s", percentile,
+                        format(histogram, histogram.getPercentile(percentile))));
+            }
+            out.append(String.format(Locale.US, " mean=%s max=%s %s\n",
+                    format(histogram, (long) histogram.getMean()),
+                    format(histogram, histogram.getMax()),
+                    histogram.getUnit()));
+        }
+        return out.toString();
+    }
+
+    private static String format(Histogram histogram, long value) {
+        if (UNIT_MS.equals(histogram.getUnit())) {
+            return String.format(Locale.US, "%.1f", value / 1000.0);
+        }
+        return Long.toString(value);
+    }
+}
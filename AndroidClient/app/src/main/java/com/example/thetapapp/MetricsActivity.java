@@ -0,0 +1,127 @@
+package com.example.thetapapp;
+
+import androidx.appcompat.app.AppCompatActivity;
+import android.content.ActivityNotFoundException;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.squareup.picasso.StatsSnapshot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ MetricsActivity:
+ Debug screen with the percentiles from Metrics, the scheduler's queue stats, the
+ image cache counters and what each cache holds against the MemoryBudget. Export writes the same text to a file in the app's external files
+ dir (metrics/) and offers to share it, so field testers can send it to us.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private TextView m_metricsText;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        m_metricsText = findViewById(R.id.tvMetrics);
+        Button refreshButton = findViewById(R.id.btnRefresh);
+        Button resetButton = findViewById(R.id.btnReset);
+        Button exportButton = findViewById(R.id.btnExport);
+
+        refreshButton.setOnClickListener(v -> refresh());
+        resetButton.setOnClickListener(v -> {
+            Metrics.get().reset();
+            refresh();
+        });
+        exportButton.setOnClickListener(v -> export());
+
+        refresh();
+    }
+
+    private void refresh() {
+        m_metricsText.setText(report());
+    }
+
+    private void export() {
+        File dir = new File(getExternalFilesDir(null), "metrics");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Toast.makeText(this, "Unable to create " + dir, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        File file = new File(dir, "metrics-" + stamp + ".txt");
+        String text = report();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(text);
+        } catch (IOException e) {
+            e.printStackTrace();
+            Toast.makeText(this, "Export failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Toast.makeText(this, "Saved " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("text/plain");
+        intent.putExtra(Intent.EXTRA_SUBJECT, "TapApp metrics " + stamp);
+        intent.putExtra(Intent.EXTRA_TEXT, text);
+        try {
+            startActivity(Intent.createChooser(intent, "Send metrics"));
+        } catch (ActivityNotFoundException e) {
+            // The file is still there to pull off the device
+        }
+    }
+
+    private String report() {
+        return header() + Metrics.get().dump() + "\n" + schedulerStats() + "\n" + imageStats()
+                + "\n" + memoryStats();
+    }
+
+    private static String header() {
+        return String.format(Locale.US, "%s %s, Android %s (API %d), app %s, %s\n\n",
+                Build.MANUFACTURER, Build.MODEL, Build.VERSION.RELEASE, Build.VERSION.SDK_INT,
+                BuildConfig.VERSION_NAME,
+                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss Z", Locale.US).format(new Date()));
+    }
+
+    private static String schedulerStats() {
+        StringBuilder out = new StringBuilder("scheduler\n");
+        for (TaskScheduler.Priority priority : TaskScheduler.Priority.values()) {
+            out.append("  ").append(TaskScheduler.get().getStats(priority)).append('\n');
+        }
+        return out.toString();
+    }
+
+    private String imageStats() {
+        ThumbnailLoader loader = ThumbnailLoader.get(this);
+        StatsSnapshot stats = loader.getStats();
+        return String.format(Locale.US,
+                "images\n  memory %d/%d KB hits=%d misses=%d decoded=%d avg download=%d B\n",
+                loader.getMemoryCacheSize() / 1024, loader.getMemoryCacheMaxSize() / 1024,
+                stats.cacheHits, stats.cacheMisses, stats.originalBitmapCount, stats.averageDownloadSize);
+    }
+
+    private static String memoryStats() {
+        MemoryBudget budget = MemoryBudget.get();
+        StringBuilder out = new StringBuilder(String.format(Locale.US, "memory %d/%d KB\n",
+                budget.totalBytes() / 1024, budget.getBudgetBytes() / 1024));
+        for (Map.Entry<String, Long> cache : budget.usage().entrySet()) {
+            out.append(String.format(Locale.US, "  %s %d KB\n", cache.getKey(), cache.getValue() / 1024));
+        }
+        return out.toString();
+    }
+}
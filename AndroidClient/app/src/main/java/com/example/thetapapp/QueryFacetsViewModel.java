@@ -0,0 +1,96 @@
+package com.example.thetapapp;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ QueryFacetsViewModel:
+ Match counts for every QueryTapsActivity spinner option, given the other selections, so
+ combinations that find nothing can be greyed out before anyone searches.
+ The counts come from TapQueryIndex over the cached catalog (brought up to date first
+ when it is too old to trust). Once that index is loaded, each spinner change is
+ recounted right away on the main thread, which takes well under a frame.
+ No counts are published while there is no usable catalog, the spinners then stay plain.
+ */
+public class QueryFacetsViewModel extends AndroidViewModel {
+
+    private final MutableLiveData<List<Map<String, Integer>>> m_counts = new MutableLiveData<>();
+    private final CancellationToken m_token = new CancellationToken();
+    private final Handler m_mainHandler = new Handler(Looper.getMainLooper());
+
+    private boolean m_started;
+    private TapQueryIndex m_index;
+    private Map<String, String> m_filters = new HashMap<>();
+
+    public QueryFacetsViewModel(@NonNull Application application) {
+        super(application);
+    }
+
+    // Indexed like TapQueryIndex.ATTRIBUTES
+    public LiveData<List<Map<String, Integer>>> getCounts() {
+        return m_counts;
+    }
+
+    /**
+     Loads the index in the background. Only the first call does anything.
+     */
+    public void start() {
+        if (m_started) return;
+        m_started = true;
+
+        TapCatalogRepository repository = TapCatalogRepository.get(getApplication());
+        TaskScheduler.get().submit(TaskScheduler.Priority.USER_VISIBLE, m_token, () -> {
+            TapQueryIndex index = repository.getFreshQueryIndex();
+            if (index == null) {
+                try {
+                    repository.revalidate(m_token);
+                    index = repository.getFreshQueryIndex();
+                } catch (Exception e) {
+                    // Offline or rate-limited: no counts, the search itself still works
+                    if (!m_token.isCancelled()) e.printStackTrace();
+                    return;
+                }
+            }
+            if (index == null) return;
+
+            TapQueryIndex loaded = index;
+            m_mainHandler.post(() -> {
+                m_index = loaded;
+                recount();
+            });
+        });
+    }
+
+    /**
+     The selected value per TapQueryIndex.ATTRIBUTES key, unselected spinners left out.
+     Main thread only.
+     */
+    public void setFilters(Map<String, String> filters) {
+        m_filters = new HashMap<>(filters);
+        recount();
+    }
+
+    private void recount() {
+        if (m_index == null) return;
+
+        long start = System.nanoTime();
+        List<Map<String, Integer>> counts = m_index.facetCounts(m_filters);
+        Metrics.get().recordSince("query.facets", start);
+        m_counts.setValue(counts);
+    }
+
+    @Override
+    protected void onCleared() {
+        m_token.cancel();
+    }
+}
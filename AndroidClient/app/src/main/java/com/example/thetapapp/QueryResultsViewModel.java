@@ -0,0 +1,111 @@
+package com.example.thetapapp;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ QueryResultsViewModel:
+ Runs one search for QueryResultsActivity and keeps the result across rotation.
+ Leaving the screen cancels a search that is still waiting on the server.
+ */
+public class QueryResultsViewModel extends AndroidViewModel {
+
+    private static final String QUERY_PATH = "taps/query?view=summary";
+
+    private final MutableLiveData<List<Tap>> m_results = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> m_loading = new MutableLiveData<>(false);
+    private final MutableLiveData<String> m_error = new MutableLiveData<>();
+    private final CancellationToken m_token = new CancellationToken();
+
+    private String m_filtersJson;
+
+    public QueryResultsViewModel(@NonNull Application application) {
+        super(application);
+    }
+
+    public LiveData<List<Tap>> getResults() {
+        return m_results;
+    }
+
+    public LiveData<Boolean> isLoading() {
+        return m_loading;
+    }
+
+    // One-off message, call errorShown() once it has been displayed
+    public LiveData<String> getError() {
+        return m_error;
+    }
+
+    public void errorShown() {
+        m_error.setValue(null);
+    }
+
+    /**
+     Starts the search, unless the same one has already been started (e.g. before a rotation).
+     */
+    public void search(String filtersJson) {
+        if (filtersJson.equals(m_filtersJson)) return;
+        m_filtersJson = filtersJson;
+        m_loading.setValue(true);
+
+        // The user is staring at a spinner, this goes ahead of prefetch and image work
+        TaskScheduler.get().submit(TaskScheduler.Priority.USER_VISIBLE, m_token, () -> {
+            try {
+                List<Tap> results;
+
+                // Answer from the cached catalog when we have a fresh one, the server is only the fallback.
+                // Near the rate limit any cached catalog will do, old results beat a ten minute block.
+                TapCatalogRepository repository = TapCatalogRepository.get(getApplication());
+                TapQueryIndex index = repository.getFreshQueryIndex();
+                if (index == null && ApiClient.get().getGovernor().isBudgetLow()) {
+                    index = repository.getQueryIndex(Long.MAX_VALUE);
+                }
+                if (index != null) {
+                    results = index.query(toFilterMap(filtersJson));
+                } else {
+                    Log.d("API_REQUEST", filtersJson);
+                    try (ApiResponse response = ApiClient.get().postJson(QUERY_PATH, filtersJson, m_token)) {
+                        results = TapJsonDecoder.readTapList(response.body()).getTaps();
+                    }
+                }
+
+                m_results.postValue(results);
+                m_loading.postValue(false);
+
+            } catch (Exception e) {
+                if (m_token.isCancelled()) return;
+                e.printStackTrace();
+                m_loading.postValue(false);
+                m_error.postValue(ApiClient.get().getGovernor().describeFailure("Error: " + e.getMessage()));
+            }
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        m_token.cancel();
+    }
+
+    private static Map<String, String> toFilterMap(String filtersJson) throws Exception {
+        JSONObject filters = new JSONObject(filtersJson);
+        Map<String, String> map = new HashMap<>();
+        Iterator<String> keys = filters.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            map.put(key, filters.getString(key));
+        }
+        return map;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.thetapapp;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 
 import android.graphics.Color;
 import android.os.Bundle;
@@ -9,10 +10,16 @@ import android.widget.*;
 import org.json.JSONObject;
 import android.content.Intent;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  QueryTapsActivity:
  Allows users to search for taps using filter criteria via dropdown menus.
  Sends an Intent to the QueryResultsActivity which is where the POST to the server happens
+ Every option shows how many taps it would match with the other selections, options that
+ would match none are disabled (see QueryFacetsViewModel).
  */
 public class QueryTapsActivity extends AppCompatActivity {
 
@@ -22,6 +29,10 @@ public class QueryTapsActivity extends AppCompatActivity {
     ProgressBar progressBar;
     LinearLayout resultsContainer;
 
+    // In TapQueryIndex.ATTRIBUTES order
+    Spinner[] filterSpinners;
+    QueryFacetsViewModel facetsViewModel;
+
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -48,7 +59,12 @@ public class QueryTapsActivity extends AppCompatActivity {
         // Handle search button click
         btnSearch.setOnClickListener(v -> performSearch());
 
-        //OnItemSelectedListener that resets the colour of the background to white
+        filterSpinners = new Spinner[]{spinnerContainerType, spinnerMaterial, spinnerSize, spinnerFlow, spinnerLiquidType};
+        facetsViewModel = new ViewModelProvider(this).get(QueryFacetsViewModel.class);
+        facetsViewModel.getCounts().observe(this, this::showCounts);
+        facetsViewModel.start();
+
+        //OnItemSelectedListener that resets the colour of the background to white and recounts the options
 
         AdapterView.OnItemSelectedListener resetColor = new AdapterView.OnItemSelectedListener(){
             @Override
@@ -56,6 +72,7 @@ public class QueryTapsActivity extends AppCompatActivity {
                 if (position > 0){
                     parent.setBackgroundColor(Color.WHITE);
                 }
+                facetsViewModel.setFilters(selectedFilters());
             }
 
             @Override
@@ -74,15 +91,27 @@ public class QueryTapsActivity extends AppCompatActivity {
 
     //Function that attaches data to the spinners from an array stored in strings.xml
     private void setupSpinner(Spinner spinner, int arrayResId) {
-        ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(
-                this,
-                arrayResId,
-                android.R.layout.simple_spinner_item
-        );
-        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        FacetSpinnerAdapter adapter = new FacetSpinnerAdapter(this, getResources().getTextArray(arrayResId));
         spinner.setAdapter(adapter);
     }
 
+    // The current selections keyed like TapQueryIndex.ATTRIBUTES, unselected spinners left out
+    private Map<String, String> selectedFilters() {
+        Map<String, String> filters = new HashMap<>();
+        for (int a = 0; a < filterSpinners.length; a++) {
+            if (filterSpinners[a].getSelectedItemPosition() > 0) {
+                filters.put(TapQueryIndex.ATTRIBUTES[a], filterSpinners[a].getSelectedItem().toString());
+            }
+        }
+        return filters;
+    }
+
+    private void showCounts(List<Map<String, Integer>> counts) {
+        for (int a = 0; a < filterSpinners.length; a++) {
+            ((FacetSpinnerAdapter) filterSpinners[a].getAdapter()).setCounts(counts.get(a));
+        }
+    }
+
     //Creates a filter object and populates it with various search criteria
     private void performSearch() {
         boolean isValid = true;
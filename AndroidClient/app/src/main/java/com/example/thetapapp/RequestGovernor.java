@@ -0,0 +1,190 @@
+package com.example.thetapapp;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ RequestGovernor:
+ The client's view of the server's rate limit (RatelimiterMiddle: LIMIT requests per IP,
+ the count starting over once WINDOW_MS passes without a request, then a BLOCK_MS block).
+ Every public route shares that one budget, so there is one governor per ApiClient.
+ - The budget comes from the X-RateLimit-* headers, and is counted locally the same way
+   the middleware counts when a server doesn't send them.
+ - Once blocked (a 429, or Retry-After on the request that used up the budget) requests
+   fail fast with RateLimitedException for Retry-After plus jitter, without going out.
+ - isBudgetLow() tells background work (revalidation, detail prefetch) to serve from cache
+   and leave the last RESERVE requests for what the user is waiting on.
+ - retryDelayMs() gives jittered backoff for retries, so failures don't turn into a storm.
+ Thread-safe.
+ */
+public class RequestGovernor {
+
+    // RatelimiterMiddle's numbers, used until the server says otherwise
+    static final int LIMIT = 10;
+    static final long WINDOW_MS = 5 * 60 * 1000L;
+    static final long BLOCK_MS = 10 * 60 * 1000L;
+
+    // Requests kept back for the user, background work stops once only this many are left
+    static final int RESERVE = 3;
+
+    // Added to every block, so work waiting for it to end doesn't all go out at once
+    static final long JITTER_MS = 5_000;
+
+    static final long BACKOFF_BASE_MS = 2_000;
+    static final long BACKOFF_MAX_MS = 60_000;
+
+    /**
+     Thrown instead of sending a request while the server is known to block us.
+     */
+    public static class RateLimitedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final long m_waitMs;
+
+        RateLimitedException(long waitMs) {
+            super("Rate limited for another " + (waitMs + 999) / 1000 + " s");
+            m_waitMs = waitMs;
+        }
+
+        public long getWaitMs() {
+            return m_waitMs;
+        }
+    }
+
+    private final Random m_random;
+
+    private int m_limit = LIMIT;
+    private int m_remaining = LIMIT;
+    // When the count starts over (m_remaining back to m_limit)
+    private long m_windowEndsAt = Long.MIN_VALUE;
+    private long m_blockedUntil = Long.MIN_VALUE;
+
+    public RequestGovernor() {
+        this(new Random());
+    }
+
+    RequestGovernor(Random random) {
+        m_random = random;
+    }
+
+    /**
+     Called before a request goes out. Counts it against the budget, or throws while blocked.
+     */
+    public synchronized void acquire() throws RateLimitedException {
+        long now = now();
+        if (now < m_blockedUntil) {
+            throw new RateLimitedException(m_blockedUntil - now);
+        }
+
+        m_remaining = Math.max(0, remaining(now) - 1);
+        m_windowEndsAt = now + WINDOW_MS;
+    }
+
+    /**
+     Updates the budget from a response's status and rate limit headers (any may be null).
+     Retry-After blocks whatever the status, the server sends it with the last request the
+     budget allows too.
+     */
+    public synchronized void onResponse(int code, String limit, String remaining, String resetSeconds,
+                                        String retryAfterSeconds) {
+        long now = now();
+        long value = parseSeconds(limit);
+        if (value > 0) {
+            m_limit = (int) Math.min(value, Integer.MAX_VALUE);
+        }
+        value = parseSeconds(remaining);
+        if (value >= 0) {
+            m_remaining = (int) Math.min(value, m_limit);
+        }
+        value = parseSeconds(resetSeconds);
+        if (value >= 0) {
+            m_windowEndsAt = now + value * 1000;
+        }
+
+        long retryAfter = parseSeconds(retryAfterSeconds);
+        if (retryAfter >= 0 || code == 429) {
+            long waitMs = retryAfter >= 0 ? retryAfter * 1000 : BLOCK_MS;
+            m_blockedUntil = now + waitMs + jitter(JITTER_MS);
+            // The count has started over by the time the block ends
+            m_remaining = 0;
+            m_windowEndsAt = m_blockedUntil;
+        }
+    }
+
+    public synchronized boolean isBlocked() {
+        return now() < m_blockedUntil;
+    }
+
+    // 0 when not blocked
+    public synchronized long blockedForMs() {
+        return blockedFor(now());
+    }
+
+    public synchronized int getRemaining() {
+        return remaining(now());
+    }
+
+    /**
+     True when work the user isn't waiting on should be answered from cache instead.
+     */
+    public synchronized boolean isBudgetLow() {
+        long now = now();
+        return now < m_blockedUntil || remaining(now) <= RESERVE;
+    }
+
+    /**
+     How long to wait before retrying a failed request (attempt 0 is the first retry):
+     until the block ends while blocked, otherwise exponential backoff with full jitter.
+     */
+    public synchronized long retryDelayMs(int attempt) {
+        long blockedFor = blockedFor(now());
+        if (blockedFor > 0) {
+            return blockedFor + jitter(JITTER_MS);
+        }
+        long cap = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(attempt, 16));
+        return jitter(cap);
+    }
+
+    /**
+     What to tell the user about a failed request: how long to wait while blocked,
+     otherwise the given message.
+     */
+    public String describeFailure(String fallback) {
+        long waitMs = blockedForMs();
+        if (waitMs <= 0) return fallback;
+
+        long minutes = Math.max(1, Math.round(waitMs / 60_000.0));
+        return String.format(Locale.US, "Too many requests, try again in %d %s",
+                minutes, minutes == 1 ? "minute" : "minutes");
+    }
+
+    // Compared before subtracting, m_blockedUntil starts out as Long.MIN_VALUE
+    private long blockedFor(long now) {
+        return now < m_blockedUntil ? m_blockedUntil - now : 0;
+    }
+
+    private int remaining(long now) {
+        return now >= m_windowEndsAt ? m_limit : m_remaining;
+    }
+
+    private long jitter(long boundMs) {
+        return (long) (m_random.nextDouble() * boundMs);
+    }
+
+    // Monotonic, wall clock changes must not lift or extend a block
+    private static long now() {
+        return System.nanoTime() / 1_000_000L;
+    }
+
+    // Non-negative whole seconds (or counts), -1 when missing or not a number
+    private static long parseSeconds(String value) {
+        if (value == null) return -1;
+        try {
+            long parsed = Long.parseLong(value.trim());
+            return parsed >= 0 ? parsed : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.thetapapp;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.Toast;
+
+/**
+ SearchTapsActivity:
+ Free-text search over the cached catalog; results update as the user types.
+ */
+public class SearchTapsActivity extends AppCompatActivity {
+
+    private EditText m_searchText;
+    private TapList m_results;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search_taps);
+
+        m_searchText = findViewById(R.id.etSearch);
+        m_results = findViewById(R.id.searchResults);
+
+        TapSearchViewModel viewModel = new ViewModelProvider(this).get(TapSearchViewModel.class);
+        viewModel.getResults().observe(this, taps -> {
+            boolean none = taps.isEmpty() && m_searchText.getText().toString().trim().length() > 0;
+            m_results.setWarningText(none ? View.VISIBLE : View.GONE, none ? "No matching taps" : "");
+            m_results.setData(taps);
+        });
+        viewModel.getError().observe(this, message -> {
+            if (message == null) return;
+            Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+            viewModel.errorShown();
+        });
+
+        // Also fires for the text restored after a rotation, the ViewModel skips repeats
+        m_searchText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                viewModel.setQuery(s.toString());
+            }
+        });
+    }
+}
@@ -1,23 +1,80 @@
 package com.example.thetapapp;
 
+import java.io.Serializable;
+import java.util.Objects;
+
 /**
  Tap model class:
  Represents a single Tap record with its attributes.
  Matches the JSON structure returned from the backend API.
+ Serializable so a list row can hand its tap to TapView through the Intent.
+ image_variants lists server-made thumbnails of image_url, see ImageVariants.
  */
-public class Tap {
+public class Tap implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private String id;
+    private String title;
+    private String description;
+    private String image_url;
+    private String image_variants;
     private String container_type;
     private String material;
     private String size;
     private String flow_rate;
     private String category;
 
+    public Tap(String id, String title, String description, String image_url,
+               String container_type, String material, String size, String flow_rate, String category) {
+        this(id, title, description, image_url, null, container_type, material, size, flow_rate, category);
+    }
+
+    public Tap(String id, String title, String description, String image_url, String image_variants,
+               String container_type, String material, String size, String flow_rate, String category) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.image_url = image_url;
+        this.image_variants = image_variants;
+        this.container_type = container_type;
+        this.material = material;
+        this.size = size;
+        this.flow_rate = flow_rate;
+        this.category = category;
+    }
+
     // Getters for Tap properties
     public String getId() { return id; }
+    public String getTitle() { return title; }
+    public String getDescription() { return description; }
+    public String getImage_url() { return image_url; }
+    public String getImage_variants() { return image_variants; }
     public String getContainer_type() { return container_type; }
     public String getMaterial() { return material; }
     public String getSize() { return size; }
     public String getFlow_rate() { return flow_rate; }
     public String getCategory() { return category; }
+
+    // Value equality, used by the list diff to find rows whose content changed
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Tap)) return false;
+        Tap other = (Tap) o;
+        return Objects.equals(id, other.id)
+                && Objects.equals(title, other.title)
+                && Objects.equals(description, other.description)
+                && Objects.equals(image_url, other.image_url)
+                && Objects.equals(image_variants, other.image_variants)
+                && Objects.equals(container_type, other.container_type)
+                && Objects.equals(material, other.material)
+                && Objects.equals(size, other.size)
+                && Objects.equals(flow_rate, other.flow_rate)
+                && Objects.equals(category, other.category);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, title, description, image_url, image_variants, container_type, material, size, flow_rate, category);
+    }
 }
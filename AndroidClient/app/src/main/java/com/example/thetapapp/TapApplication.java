@@ -0,0 +1,34 @@
+package com.example.thetapapp;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.work.Configuration;
+
+/**
+ TapApplication:
+ App-wide setup that has to happen before any screen. WorkManager is initialised on
+ demand from here (the default startup initializer is removed in the manifest) so its
+ workers run on TaskScheduler's BACKGROUND_SYNC lane instead of a pool of its own, and the
+ background catalog sync is registered off the main thread.
+ MemoryBudget hears about memory pressure from here. AppWarmup is left to MainActivity:
+ WorkManager starts the process for CatalogSyncWorker too, with nobody to look at the list.
+ */
+public class TapApplication extends Application implements Configuration.Provider {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        registerComponentCallbacks(MemoryBudget.get());
+        TaskScheduler.get().submit(TaskScheduler.Priority.BACKGROUND_SYNC,
+                () -> CatalogSyncWorker.schedule(this));
+    }
+
+    @NonNull
+    @Override
+    public Configuration getWorkManagerConfiguration() {
+        return new Configuration.Builder()
+                .setExecutor(TaskScheduler.get().executor(TaskScheduler.Priority.BACKGROUND_SYNC))
+                .build();
+    }
+}
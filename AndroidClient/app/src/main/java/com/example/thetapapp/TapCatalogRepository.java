@@ -0,0 +1,513 @@
+package com.example.thetapapp;
+
+import android.content.Context;
+import android.os.Looper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ TapCatalogRepository:
+ App-wide owner of the tap catalog. Screens read the on-device copy first and then ask the
+ repository to bring it up to date: normally by fetching just the changes since the stored
+ catalog version, otherwise by revalidating the whole catalog with its ETag (If-None-Match).
+ An unchanged catalog costs one small response and leaves the list alone.
+ Revalidations asked for while one is running share its result, and while the rate limit
+ budget is low the cached catalog is used as it is.
+ warmUp() starts what the list screen will ask for first from the home screen (AppWarmup), and
+ the list picks up that request, running or done, instead of sending its own.
+ The indexes, the snapshot's decoded rows and a catalog held on the heap (after a download,
+ until the next start reads it from the snapshot) are registered with MemoryBudget, which
+ drops them under pressure: the indexes are rebuilt and the rows decoded again on next use,
+ the catalog is swapped for the mapped snapshot.
+ Disk writes and index builds happen outside the repository's lock, so MemoryBudget's
+ callbacks on the main thread never wait for them.
+ All methods block, so call them off the main thread.
+ */
+public class TapCatalogRepository {
+
+    // The list screens only need the summary view, without the bookkeeping fields.
+    // TapView gets the full record through TapDetailCache.
+    private static final String TAPS_PATH = "taps?view=summary";
+    private static final String CHANGES_PATH = "taps/changes?view=summary&since=";
+
+    // Taps per request when paging through the catalog on first run
+    static final int PAGE_SIZE = 50;
+
+    // How old a cached catalog may be before queries go back to the server
+    static final long QUERY_MAX_STALENESS_MS = 6 * 60 * 60 * 1000L;
+
+    // A catalog validated more recently than this (e.g. by CatalogSyncWorker) is shown without asking
+    static final long REVALIDATE_AFTER_MS = 15 * 60 * 1000L;
+
+    // A first page fetched by warmUp() longer ago than this is fetched again instead
+    static final long SPECULATIVE_PAGE_MAX_AGE_MS = 2 * 60 * 1000L;
+
+    // How often a caller waiting for warmUp()'s first page checks whether it was cancelled
+    private static final long SPECULATIVE_POLL_MS = 50;
+
+    private static TapCatalogRepository s_instance;
+
+    private final TapCatalogStore m_store;
+    // Written under the lock, volatile so MemoryBudget can size them without taking it
+    private volatile List<Tap> m_taps;
+    // Heap held by m_taps, 0 while it reads from the snapshot
+    private volatile long m_tapsBytes;
+    private volatile TapQueryIndex m_queryIndex;
+    private volatile TapTextIndex m_textIndex;
+
+    // The revalidation in progress, callers arriving meanwhile wait for it instead of asking again
+    private FutureTask<List<Tap>> m_revalidation;
+    private CancellationToken m_revalidationToken;
+
+    // Pages collected so far while paging through the catalog, persisted once the last page arrives
+    private List<Tap> m_pagedTaps;
+    private String m_pagedEtag;
+    private long m_pagedVersion;
+    private String m_expectedCursor;
+
+    // First page fetched by warmUp() for the first fetchPage(null), with when it was started
+    private FutureTask<TapListResponse> m_speculativeFirstPage;
+    private long m_speculativeFirstPageAt;
+
+    TapCatalogRepository(TapCatalogStore store) {
+        m_store = store;
+    }
+
+    public static synchronized TapCatalogRepository get(Context context) {
+        if (s_instance == null) {
+            s_instance = new TapCatalogRepository(new TapCatalogStore(context));
+            s_instance.registerWithMemoryBudget(MemoryBudget.get());
+        }
+        return s_instance;
+    }
+
+    // Lets tests start from an empty catalog; null makes the next get() open the store again
+    static synchronized void setInstance(TapCatalogRepository repository) {
+        s_instance = repository;
+    }
+
+    /**
+     The catalog as it is on the device right now (empty on first run).
+     */
+    public synchronized List<Tap> loadCached() {
+        if (m_taps == null) {
+            // Already read-only, and kept unwrapped so TapQueryIndex can read the snapshot directly
+            m_taps = m_store.loadTaps();
+            m_tapsBytes = 0;
+        }
+        return m_taps;
+    }
+
+    /**
+     Brings the cached catalog up to date with the server.
+     When the catalog version is known only the changes since then are fetched and merged
+     in; when the server's change log doesn't reach back that far (410), or the version
+     isn't known, the whole catalog is revalidated with its ETag instead.
+     Returns the new catalog if it changed, or null if it was already current (or there is
+     a cached catalog and the rate limit budget is too low to check it now).
+     */
+    public List<Tap> revalidate(CancellationToken token) throws IOException {
+        while (true) {
+            FutureTask<List<Tap>> task;
+            CancellationToken owner;
+            boolean mine = false;
+            synchronized (this) {
+                if (m_revalidation == null) {
+                    m_revalidation = new FutureTask<>(() -> revalidateNow(token));
+                    m_revalidationToken = token;
+                    mine = true;
+                }
+                task = m_revalidation;
+                owner = m_revalidationToken;
+            }
+
+            if (mine) {
+                try {
+                    task.run();
+                } finally {
+                    synchronized (this) {
+                        m_revalidation = null;
+                        m_revalidationToken = null;
+                    }
+                }
+            }
+
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                // Whoever started it gave up, which is no reason for us to
+                if (!mine && owner.isCancelled() && !token.isCancelled()) {
+                    continue;
+                }
+                if (cause instanceof IOException) throw (IOException) cause;
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    private List<Tap> revalidateNow(CancellationToken token) throws IOException {
+        List<Tap> cached;
+        String etag;
+        long version;
+        synchronized (this) {
+            cached = loadCached();
+            etag = cached.isEmpty() ? null : m_store.getEtag();
+            version = cached.isEmpty() ? -1 : m_store.getVersion();
+        }
+
+        // Showing the cached catalog a little longer beats being blocked for ten minutes
+        if (!cached.isEmpty() && ApiClient.get().getGovernor().isBudgetLow()) {
+            return null;
+        }
+
+        if (version >= 0) {
+            try (ApiResponse response = ApiClient.get().get(CHANGES_PATH + version, token)) {
+                if (response.getCode() != 410) {
+                    return applyChanges(response, cached, version, token);
+                }
+            }
+            // Too far behind for the change log, and the ETag would only tell us that it changed
+            etag = null;
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        if (etag != null) {
+            headers.put("If-None-Match", etag);
+        }
+
+        try (ApiResponse response = ApiClient.get().get(TAPS_PATH, headers, token)) {
+            if (response.getCode() == 304) {
+                m_store.markValidated();
+                return null;
+            }
+            if (!response.isSuccessful()) {
+                throw new IOException("HTTP " + response.getCode());
+            }
+
+            TapListResponse catalog = TapJsonDecoder.readTapList(response.body());
+            List<Tap> taps = Collections.unmodifiableList(catalog.getTaps());
+            token.throwIfCancelled();
+            return save(taps, response.getHeader("ETag"), catalog.getVersion(), null);
+        }
+    }
+
+    private List<Tap> applyChanges(ApiResponse response, List<Tap> cached, long version,
+                                   CancellationToken token) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("HTTP " + response.getCode());
+        }
+
+        TapChanges changes = TapJsonDecoder.readChanges(response.body());
+        if (changes.isEmpty() && changes.getVersion() == version) {
+            m_store.markValidated();
+            return null;
+        }
+
+        List<Tap> taps = Collections.unmodifiableList(changes.applyTo(cached));
+        token.throwIfCancelled();
+        return save(taps, response.getHeader("ETag"), changes.getVersion(), changes);
+    }
+
+    // changes is the delta the catalog was built from, so the text index can follow it in place
+    private List<Tap> save(List<Tap> taps, String etag, long version, TapChanges changes) {
+        m_store.replaceCatalog(taps, etag, version);
+        long bytes = HeapSizes.estimateBytes(taps);
+        synchronized (this) {
+            m_taps = taps;
+            m_tapsBytes = bytes;
+            m_queryIndex = null;
+            if (m_textIndex != null && changes != null) {
+                m_textIndex.apply(changes);
+            } else {
+                m_textIndex = null;
+            }
+        }
+        MemoryBudget.get().checkBudget();
+        return taps;
+    }
+
+    /**
+     Starts, ahead of the list screen, the request it would send first: the first page when
+     nothing is cached, otherwise a revalidation unless the catalog was checked recently (the
+     list then joins it through revalidate()). Also maps the cached catalog.
+     Returns false when nothing was sent. Nothing is while the rate limit budget is low,
+     the request is only a guess at what the user does next.
+     */
+    public boolean warmUp(CancellationToken token) throws IOException {
+        boolean empty = loadCached().isEmpty();
+        if (ApiClient.get().getGovernor().isBudgetLow()) return false;
+
+        if (!empty) {
+            if (isValidatedWithin(REVALIDATE_AFTER_MS)) return false;
+            revalidate(token);
+            return true;
+        }
+
+        FutureTask<TapListResponse> task;
+        synchronized (this) {
+            if (m_speculativeFirstPage != null) return false;
+            task = new FutureTask<>(() -> fetchPageNow(null, token));
+            m_speculativeFirstPage = task;
+            m_speculativeFirstPageAt = System.currentTimeMillis();
+        }
+        task.run();
+        return true;
+    }
+
+    /**
+     Fetches one page of the catalog (cursor null for the first page).
+     While the pages are requested in order and the catalog version (ETag) doesn't change in
+     between, they are collected and saved as the on-device catalog after the last one.
+     The first page comes from warmUp() when it fetched one recently, waiting for it if it's
+     still on its way.
+     */
+    public TapListResponse fetchPage(String cursor, CancellationToken token) throws IOException {
+        if (cursor == null) {
+            TapListResponse speculative = takeSpeculativeFirstPage(token);
+            if (speculative != null) return speculative;
+        }
+        return fetchPageNow(cursor, token);
+    }
+
+    // warmUp()'s first page, null when there is none to use (or it failed) and a fresh request should go out
+    private TapListResponse takeSpeculativeFirstPage(CancellationToken token) throws IOException {
+        FutureTask<TapListResponse> task;
+        synchronized (this) {
+            task = m_speculativeFirstPage;
+            if (task == null) return null;
+            // Used once, the next list screen starts over like before
+            m_speculativeFirstPage = null;
+            if (System.currentTimeMillis() - m_speculativeFirstPageAt > SPECULATIVE_PAGE_MAX_AGE_MS) return null;
+        }
+
+        while (true) {
+            token.throwIfCancelled();
+            try {
+                return task.get(SPECULATIVE_POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Still on its way, keep waiting unless the caller gave up
+            } catch (ExecutionException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted");
+            }
+        }
+    }
+
+    private TapListResponse fetchPageNow(String cursor, CancellationToken token) throws IOException {
+        String path = TAPS_PATH + "&limit=" + PAGE_SIZE;
+        if (cursor != null) {
+            path += "&cursor=" + URLEncoder.encode(cursor, "UTF-8");
+        }
+
+        try (ApiResponse response = ApiClient.get().get(path, token)) {
+            if (!response.isSuccessful()) {
+                throw new IOException("HTTP " + response.getCode());
+            }
+
+            TapListResponse page = TapJsonDecoder.readTapList(response.body());
+            String etag = response.getHeader("ETag");
+            List<Tap> complete = null;
+            long version = -1;
+
+            synchronized (this) {
+                if (cursor == null) {
+                    m_pagedTaps = new ArrayList<>();
+                    m_pagedEtag = etag;
+                    m_pagedVersion = page.getVersion();
+                } else if (m_pagedTaps != null
+                        && !(cursor.equals(m_expectedCursor) && Objects.equals(etag, m_pagedEtag))) {
+                    // Out of order or the catalog changed halfway, don't persist a mix of versions
+                    m_pagedTaps = null;
+                }
+
+                if (m_pagedTaps != null) {
+                    m_pagedTaps.addAll(page.getTaps());
+                    m_expectedCursor = page.getNextCursor();
+
+                    if (page.getNextCursor() == null) {
+                        complete = Collections.unmodifiableList(m_pagedTaps);
+                        version = m_pagedVersion;
+                        m_pagedTaps = null;
+                    }
+                }
+            }
+
+            if (complete != null) {
+                save(complete, etag, version, null);
+            }
+            return page;
+        }
+    }
+
+    public long getValidatedAt() {
+        return m_store.getValidatedAt();
+    }
+
+    /**
+     True when there is a cached catalog that was checked against the server less than
+     maxAgeMs ago.
+     */
+    public boolean isValidatedWithin(long maxAgeMs) {
+        return !loadCached().isEmpty() && System.currentTimeMillis() - getValidatedAt() < maxAgeMs;
+    }
+
+    /**
+     Index over the cached catalog for answering queries on the device, or null when
+     there is no catalog yet or it hasn't been revalidated recently enough to trust.
+     */
+    public TapQueryIndex getFreshQueryIndex() {
+        return getQueryIndex(QUERY_MAX_STALENESS_MS);
+    }
+
+    /**
+     Like getFreshQueryIndex() with a staleness limit of the caller's choosing, e.g. any age
+     while the server can't be asked.
+     */
+    public TapQueryIndex getQueryIndex(long maxStalenessMs) {
+        if (System.currentTimeMillis() - getValidatedAt() > maxStalenessMs) return null;
+
+        List<Tap> taps;
+        synchronized (this) {
+            taps = loadCached();
+            if (taps.isEmpty()) return null;
+            if (m_queryIndex != null) return m_queryIndex;
+        }
+
+        // Built outside the lock, like the text index
+        TapQueryIndex index = new TapQueryIndex(taps);
+        synchronized (this) {
+            if (m_taps == taps && m_queryIndex == null) {
+                m_queryIndex = index;
+            }
+        }
+        MemoryBudget.get().checkBudget();
+        return index;
+    }
+
+    /**
+     Free-text index over the cached catalog (whatever its age), or null when there is no
+     catalog yet. Built on first use, outside the lock so the rest of the repository stays
+     usable meanwhile, then kept up to date with every delta sync.
+     */
+    public TapTextIndex getTextIndex() {
+        List<Tap> taps;
+        synchronized (this) {
+            if (m_textIndex != null) return m_textIndex;
+            taps = loadCached();
+            if (taps.isEmpty()) return null;
+        }
+
+        TapTextIndex index = new TapTextIndex(taps);
+        synchronized (this) {
+            // The catalog changed while building, whoever asks next builds from the new one
+            if (m_taps == taps && m_textIndex == null) {
+                m_textIndex = index;
+            }
+        }
+        MemoryBudget.get().checkBudget();
+        return index;
+    }
+
+    // The caches above, cheapest to get back first
+    void registerWithMemoryBudget(MemoryBudget budget) {
+        budget.register("snapshot rows", MemoryBudget.Cost.REDECODE, new MemoryBudget.Trimmable() {
+            @Override
+            public long sizeBytes() {
+                TapSnapshot snapshot = mappedSnapshot();
+                return snapshot != null ? snapshot.rowCacheBytes() : 0;
+            }
+
+            @Override
+            public void trimToSize(long maxBytes) {
+                TapSnapshot snapshot = mappedSnapshot();
+                if (snapshot != null) snapshot.trimRowCache(maxBytes);
+            }
+        });
+        budget.register("query index", MemoryBudget.Cost.REBUILD, new MemoryBudget.Trimmable() {
+            @Override
+            public long sizeBytes() {
+                TapQueryIndex index = m_queryIndex;
+                return index != null ? index.estimateBytes() : 0;
+            }
+
+            @Override
+            public void trimToSize(long maxBytes) {
+                // At worst drops an index that was just built, it is built again on next use
+                if (maxBytes < sizeBytes()) m_queryIndex = null;
+            }
+        });
+        budget.register("text index", MemoryBudget.Cost.REBUILD, new MemoryBudget.Trimmable() {
+            @Override
+            public long sizeBytes() {
+                TapTextIndex index = m_textIndex;
+                return index != null ? index.estimateBytes() : 0;
+            }
+
+            @Override
+            public void trimToSize(long maxBytes) {
+                if (maxBytes < sizeBytes()) m_textIndex = null;
+            }
+        });
+        budget.register("catalog", MemoryBudget.Cost.RELOAD, new MemoryBudget.Trimmable() {
+            @Override
+            public long sizeBytes() {
+                return m_tapsBytes;
+            }
+
+            @Override
+            public void trimToSize(long maxBytes) {
+                if (maxBytes >= sizeBytes() || m_tapsBytes == 0) return;
+                // Opening the snapshot reads the whole file, not something for the main thread
+                if (Looper.myLooper() == Looper.getMainLooper()) {
+                    TaskScheduler.get().submit(TaskScheduler.Priority.BACKGROUND_SYNC,
+                            TapCatalogRepository.this::swapInSnapshot);
+                } else {
+                    swapInSnapshot();
+                }
+            }
+        });
+    }
+
+    // The snapshot the catalog reads from, null while it is held on the heap
+    private TapSnapshot mappedSnapshot() {
+        List<Tap> taps = m_taps;
+        return taps instanceof TapSnapshot.SnapshotList ? ((TapSnapshot.SnapshotList) taps).snapshot() : null;
+    }
+
+    // Replaces a catalog held on the heap with the mapped snapshot of the same rows
+    private void swapInSnapshot() {
+        List<Tap> onHeap = m_taps;
+        if (onHeap == null || m_tapsBytes == 0) return;
+
+        List<Tap> mapped = m_store.loadTaps();
+        synchronized (this) {
+            // Only once the snapshot has these rows, after a failed save the heap copy is all
+            // there is; and not when the catalog changed while the file was opened
+            if (m_taps != onHeap || mapped.size() != onHeap.size()) return;
+            m_taps = mapped;
+            m_tapsBytes = 0;
+            // Both may still point at the heap copy
+            m_queryIndex = null;
+            m_textIndex = null;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.thetapapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ TapCatalogStore:
+ On-device copy of the tap catalog, so the list can be drawn from disk straight away
+ and only revalidated against the server in the background.
+ The rows live in a memory-mapped TapSnapshot file; SQLite keeps the ETag and catalog
+ version they were downloaded at and when they were last confirmed fresh.
+ A snapshot that fails its checks is deleted together with the ETag, so the next load
+ starts over from the network instead of showing a broken list.
+ */
+public class TapCatalogStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "TapCatalogStore";
+
+    private static final String DB_NAME = "tap_catalog.db";
+    // 2: rows moved out of SQLite into the snapshot file
+    // 3: the summary view sends whole descriptions, dropping the ETag and version makes the
+    //    next revalidation download the catalog again instead of a delta over cut ones
+    private static final int DB_VERSION = 3;
+
+    private static final String SNAPSHOT_NAME = "tap_catalog.snapshot";
+
+    private static final String TABLE_TAPS = "taps";
+    private static final String TABLE_META = "catalog_meta";
+
+    private static final String META_ETAG = "etag";
+    private static final String META_VALIDATED_AT = "validated_at";
+    private static final String META_VERSION = "version";
+
+    private final File m_snapshotFile;
+
+    public TapCatalogStore(Context context) {
+        super(context.getApplicationContext(), DB_NAME, null, DB_VERSION);
+        // Not backed up, it is rebuilt from the server anyway
+        m_snapshotFile = new File(context.getApplicationContext().getNoBackupFilesDir(), SNAPSHOT_NAME);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_META + " (key TEXT PRIMARY KEY, value TEXT)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // It's only a cache, the next revalidation refills it
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_TAPS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_META);
+        onCreate(db);
+    }
+
+    /**
+     The cached catalog as a read-only list over the mapped snapshot, empty when there is
+     none yet or it was unreadable.
+     */
+    public List<Tap> loadTaps() {
+        if (!m_snapshotFile.exists()) {
+            return Collections.emptyList();
+        }
+        try {
+            return TapSnapshot.open(m_snapshotFile).asList();
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable catalog snapshot", e);
+            discardCatalog();
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     Swaps in a freshly downloaded catalog. The snapshot is renamed into place, so a reader
+     never sees half of it; the ETag is only stored once the rows are safely on disk.
+     */
+    public void replaceCatalog(List<Tap> taps, String etag, long version) {
+        try {
+            TapSnapshot.write(taps, m_snapshotFile);
+        } catch (IOException e) {
+            // Keep serving from memory this session, the next start downloads it again
+            Log.w(TAG, "Unable to save catalog snapshot", e);
+            discardCatalog();
+            return;
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            putMeta(db, META_ETAG, etag);
+            putMeta(db, META_VERSION, version >= 0 ? String.valueOf(version) : null);
+            putMeta(db, META_VALIDATED_AT, String.valueOf(System.currentTimeMillis()));
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Without the ETag the next revalidation gets the full catalog instead of a 304
+    private void discardCatalog() {
+        m_snapshotFile.delete();
+        getWritableDatabase().delete(TABLE_META, null, null);
+    }
+
+    // Called on a 304: the rows are still current, only the freshness timestamp moves
+    public void markValidated() {
+        putMeta(getWritableDatabase(), META_VALIDATED_AT, String.valueOf(System.currentTimeMillis()));
+    }
+
+    public String getEtag() {
+        return getMeta(META_ETAG);
+    }
+
+    // Catalog version for delta sync, -1 when unknown
+    public long getVersion() {
+        String value = getMeta(META_VERSION);
+        return value != null ? Long.parseLong(value) : -1L;
+    }
+
+    public long getValidatedAt() {
+        String value = getMeta(META_VALIDATED_AT);
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+
+    private String getMeta(String key) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_META, new String[]{"value"},
+                "key = ?", new String[]{key}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    private static void putMeta(SQLiteDatabase db, String key, String value) {
+        ContentValues values = new ContentValues();
+        values.put("key", key);
+        values.put("value", value);
+        db.insertWithOnConflict(TABLE_META, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+}
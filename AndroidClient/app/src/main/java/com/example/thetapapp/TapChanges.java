@@ -0,0 +1,67 @@
+package com.example.thetapapp;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ TapChanges:
+ What changed in the catalog since the version the device has, as sent by
+ GET /taps/changes?since=N: the taps created or edited since then (upserts) and the ids
+ that were deleted or hidden (deleted).
+ */
+public class TapChanges {
+
+    private final long m_version;
+    private final List<Tap> m_upserts;
+    private final List<String> m_deleted;
+
+    public TapChanges(long version, List<Tap> upserts, List<String> deleted) {
+        m_version = version;
+        m_upserts = upserts;
+        m_deleted = deleted;
+    }
+
+    // Catalog version after these changes, the next request asks from here
+    public long getVersion() {
+        return m_version;
+    }
+
+    public List<Tap> getUpserts() {
+        return m_upserts;
+    }
+
+    public List<String> getDeleted() {
+        return m_deleted;
+    }
+
+    public boolean isEmpty() {
+        return m_upserts.isEmpty() && m_deleted.isEmpty();
+    }
+
+    /**
+     The catalog with these changes applied, in the server's order: edited taps stay where
+     they were, new ones go at the end (the server appends new taps too) and deleted ones
+     are dropped. The given list is not modified.
+     */
+    public List<Tap> applyTo(List<Tap> catalog) {
+        Map<String, Tap> upserts = new LinkedHashMap<>();
+        for (Tap tap : m_upserts) {
+            upserts.put(tap.getId(), tap);
+        }
+        Set<String> deleted = new HashSet<>(m_deleted);
+
+        List<Tap> result = new ArrayList<>(catalog.size() + upserts.size());
+        for (Tap tap : catalog) {
+            if (deleted.contains(tap.getId())) continue;
+            Tap updated = upserts.remove(tap.getId());
+            result.add(updated != null ? updated : tap);
+        }
+        // Whatever wasn't matched in place is new
+        result.addAll(upserts.values());
+        return result;
+    }
+}
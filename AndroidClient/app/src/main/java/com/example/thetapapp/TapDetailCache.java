@@ -0,0 +1,349 @@
+package com.example.thetapapp;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ TapDetailCache:
+ In-memory LRU of full tap records from /api/public/taps, keyed by tap id.
+ - Entries younger than the TTL are served without touching the network; older ones can
+   still be shown while they get revalidated.
+ - Concurrent fetches of the same id share one request (single flight), every caller is
+   called back with the same result.
+ - Requests are batched: ids asked for within BATCH_WINDOW_MS go out together as one
+   GET /taps/batch, which costs one rate-limit token however many taps it carries.
+   prefetch() queues ids for rows that are on screen or about to be; they ride along with
+   the next fetch() and only go out on their own every PREFETCH_MIN_INTERVAL_MS, and not
+   at all while the rate limit budget is low, so scrolling alone can't use it up.
+ Registered with MemoryBudget as the last cache to trim, entries can only come back over
+ the network.
+ */
+public class TapDetailCache implements MemoryBudget.Trimmable {
+
+    static final int MAX_ENTRIES = 64;
+    static final long TTL_MS = 60 * 1000L;
+
+    // How long to wait for more ids before sending a batch, and how many ids one may carry
+    static final long BATCH_WINDOW_MS = 30;
+    static final int MAX_BATCH = 50;
+    static final long PREFETCH_MIN_INTERVAL_MS = 30 * 1000L;
+
+    private static final String BATCH_PATH = "taps/batch?ids=";
+
+    /**
+     Fetches many taps in one request. Ids the server doesn't know are left out of the map.
+     */
+    public interface Fetcher {
+        Map<String, Tap> fetch(List<String> ids, CancellationToken token) throws IOException;
+    }
+
+    // Called on the fetching thread, not the main thread
+    public interface Callback {
+        void onTap(Tap tap);
+        void onError(Exception e);
+    }
+
+    private static class Entry {
+        final Tap tap;
+        final long fetchedAt;
+
+        Entry(Tap tap, long fetchedAt) {
+            this.tap = tap;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    // One id on its way and everyone waiting for it
+    private static class InFlight {
+        final String id;
+        final List<Callback> callbacks = new ArrayList<>();
+        // Only queued by prefetch(), nobody is waiting on it yet
+        boolean prefetchOnly;
+        // Set once it has been handed to a batch
+        Batch batch;
+
+        InFlight(String id, boolean prefetchOnly) {
+            this.id = id;
+            this.prefetchOnly = prefetchOnly;
+        }
+
+        boolean isWanted() {
+            return prefetchOnly || !callbacks.isEmpty();
+        }
+    }
+
+    // One network request for several ids; cancelled once none of them is wanted any more
+    private static class Batch {
+        final List<InFlight> members = new ArrayList<>();
+        final CancellationToken token = new CancellationToken();
+    }
+
+    private static TapDetailCache s_instance;
+
+    private final Fetcher m_fetcher;
+    private final int m_maxEntries;
+    private final long m_ttlMs;
+    private final LinkedHashMap<String, Entry> m_entries;
+    private final Map<String, InFlight> m_inFlight = new HashMap<>();
+
+    // Ids waiting for the next batch, in the order they were asked for
+    private final List<InFlight> m_pending = new ArrayList<>();
+    private Runnable m_cancelFlush;
+    private boolean m_urgentFlush;
+    private long m_lastPrefetchBatchAt = Long.MIN_VALUE / 2;
+
+    TapDetailCache(Fetcher fetcher, int maxEntries, long ttlMs) {
+        m_fetcher = fetcher;
+        m_maxEntries = maxEntries;
+        m_ttlMs = ttlMs;
+        // access order, so the eldest entry is the least recently used one
+        m_entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > m_maxEntries;
+            }
+        };
+    }
+
+    public static synchronized TapDetailCache get() {
+        if (s_instance == null) {
+            s_instance = new TapDetailCache(TapDetailCache::fetchFromServer, MAX_ENTRIES, TTL_MS);
+            MemoryBudget.get().register("tap details", MemoryBudget.Cost.REFETCH, s_instance);
+        }
+        return s_instance;
+    }
+
+    /**
+     The cached tap regardless of age, or null.
+     */
+    public synchronized Tap peek(String id) {
+        Entry entry = m_entries.get(id);
+        return entry != null ? entry.tap : null;
+    }
+
+    public synchronized boolean isFresh(String id) {
+        Entry entry = m_entries.get(id);
+        return entry != null && System.currentTimeMillis() - entry.fetchedAt < m_ttlMs;
+    }
+
+    public synchronized void put(Tap tap) {
+        m_entries.put(tap.getId(), new Entry(tap, System.currentTimeMillis()));
+    }
+
+    public synchronized int size() {
+        return m_entries.size();
+    }
+
+    @Override
+    public synchronized long sizeBytes() {
+        long bytes = 0;
+        for (Entry entry : m_entries.values()) {
+            bytes += HeapSizes.estimateBytes(entry.tap);
+        }
+        return bytes;
+    }
+
+    // Least recently used first
+    @Override
+    public synchronized void trimToSize(long maxBytes) {
+        long bytes = sizeBytes();
+        for (Iterator<Entry> it = m_entries.values().iterator(); it.hasNext() && bytes > maxBytes; ) {
+            bytes -= HeapSizes.estimateBytes(it.next().tap);
+            it.remove();
+        }
+    }
+
+    /**
+     Fetches the tap from the server and caches it. If a fetch for this id is already
+     queued or running the callback is attached to it instead of asking again.
+     Running the returned Runnable detaches the callback again; the request itself is
+     only cancelled once nobody is waiting for any tap in it any more.
+     */
+    public Runnable fetch(String id, Callback callback) {
+        InFlight inFlight;
+        synchronized (this) {
+            inFlight = m_inFlight.get(id);
+            if (inFlight == null) {
+                inFlight = new InFlight(id, false);
+                m_inFlight.put(id, inFlight);
+                m_pending.add(inFlight);
+            }
+            inFlight.prefetchOnly = false;
+            inFlight.callbacks.add(callback);
+            if (inFlight.batch == null) {
+                scheduleFlush(true);
+            }
+        }
+
+        InFlight attached = inFlight;
+        return () -> detach(attached, callback);
+    }
+
+    /**
+     Queues details for rows the user is likely to open next. Ids that are cached and fresh,
+     or already on their way, are skipped. Nobody is called back, the result just lands in
+     the cache.
+     */
+    public synchronized void prefetch(List<String> ids) {
+        for (String id : ids) {
+            if (id == null || m_inFlight.containsKey(id) || isFresh(id)) continue;
+            InFlight inFlight = new InFlight(id, true);
+            m_inFlight.put(id, inFlight);
+            m_pending.add(inFlight);
+        }
+        dropOldPrefetches();
+
+        if (System.currentTimeMillis() - m_lastPrefetchBatchAt >= PREFETCH_MIN_INTERVAL_MS
+                && !ApiClient.get().getGovernor().isBudgetLow()) {
+            scheduleFlush(false);
+        }
+    }
+
+    // Rows scrolled past long ago aren't worth a slot in the batch any more
+    private void dropOldPrefetches() {
+        int excess = m_pending.size() - MAX_BATCH;
+        for (Iterator<InFlight> it = m_pending.iterator(); it.hasNext() && excess > 0; ) {
+            InFlight inFlight = it.next();
+            if (inFlight.prefetchOnly) {
+                it.remove();
+                m_inFlight.remove(inFlight.id);
+                excess--;
+            }
+        }
+    }
+
+    private void scheduleFlush(boolean urgent) {
+        if (m_cancelFlush != null) {
+            if (!urgent || m_urgentFlush) return;
+            // Someone is waiting now, don't let the batch queue behind prefetch work
+            m_cancelFlush.run();
+        }
+        m_urgentFlush = urgent;
+        TaskScheduler.Priority priority = urgent
+                ? TaskScheduler.Priority.USER_VISIBLE : TaskScheduler.Priority.PREFETCH;
+        m_cancelFlush = TaskScheduler.get().schedule(priority, BATCH_WINDOW_MS, null, this::flush);
+    }
+
+    // Sends everything pending, waited-on ids first, MAX_BATCH per request
+    private void flush() {
+        List<Batch> batches = new ArrayList<>();
+        boolean urgent;
+        synchronized (this) {
+            urgent = m_urgentFlush;
+            m_cancelFlush = null;
+            m_urgentFlush = false;
+
+            List<InFlight> ordered = new ArrayList<>(m_pending.size());
+            for (InFlight inFlight : m_pending) {
+                if (!inFlight.prefetchOnly) ordered.add(inFlight);
+            }
+            for (InFlight inFlight : m_pending) {
+                if (inFlight.prefetchOnly) ordered.add(inFlight);
+            }
+            m_pending.clear();
+
+            Batch batch = null;
+            for (InFlight inFlight : ordered) {
+                if (batch == null || batch.members.size() == MAX_BATCH) {
+                    batch = new Batch();
+                    batches.add(batch);
+                }
+                inFlight.batch = batch;
+                batch.members.add(inFlight);
+            }
+            if (!urgent && !batches.isEmpty()) {
+                m_lastPrefetchBatchAt = System.currentTimeMillis();
+            }
+        }
+
+        TaskScheduler.Priority priority = urgent
+                ? TaskScheduler.Priority.USER_VISIBLE : TaskScheduler.Priority.PREFETCH;
+        for (Batch batch : batches) {
+            TaskScheduler.get().submit(priority, batch.token, () -> runBatch(batch));
+        }
+    }
+
+    private void runBatch(Batch batch) {
+        List<String> ids = new ArrayList<>(batch.members.size());
+        for (InFlight inFlight : batch.members) {
+            ids.add(inFlight.id);
+        }
+
+        Map<String, Tap> taps = null;
+        Exception error = null;
+        try {
+            taps = m_fetcher.fetch(ids, batch.token);
+            for (Tap tap : taps.values()) {
+                put(tap);
+            }
+        } catch (Exception e) {
+            error = e;
+        }
+
+        for (InFlight inFlight : batch.members) {
+            List<Callback> callbacks;
+            synchronized (this) {
+                if (m_inFlight.get(inFlight.id) == inFlight) {
+                    m_inFlight.remove(inFlight.id);
+                }
+                callbacks = new ArrayList<>(inFlight.callbacks);
+                inFlight.callbacks.clear();
+            }
+
+            Tap tap = taps != null ? taps.get(inFlight.id) : null;
+            for (Callback waiting : callbacks) {
+                if (tap != null) {
+                    waiting.onTap(tap);
+                } else {
+                    waiting.onError(error != null ? error : new IOException("Tap not found"));
+                }
+            }
+        }
+    }
+
+    private void detach(InFlight inFlight, Callback callback) {
+        Batch abandoned = null;
+        synchronized (this) {
+            if (!inFlight.callbacks.remove(callback) || inFlight.isWanted()) return;
+            // Nobody left waiting, a new caller should start a fresh request
+            if (m_inFlight.get(inFlight.id) == inFlight) {
+                m_inFlight.remove(inFlight.id);
+            }
+            if (inFlight.batch == null) {
+                m_pending.remove(inFlight);
+                return;
+            }
+
+            abandoned = inFlight.batch;
+            for (InFlight member : abandoned.members) {
+                if (member.isWanted()) return;
+            }
+        }
+        abandoned.token.cancel();
+    }
+
+    private static Map<String, Tap> fetchFromServer(List<String> ids, CancellationToken token) throws IOException {
+        StringBuilder path = new StringBuilder(BATCH_PATH);
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) path.append(',');
+            path.append(URLEncoder.encode(ids.get(i), "UTF-8"));
+        }
+
+        try (ApiResponse response = ApiClient.get().get(path.toString(), token)) {
+            if (!response.isSuccessful()) {
+                throw new IOException("HTTP " + response.getCode());
+            }
+            Map<String, Tap> taps = new HashMap<>();
+            for (Tap tap : TapJsonDecoder.readTapList(response.body()).getTaps()) {
+                taps.put(tap.getId(), tap);
+            }
+            return taps;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.thetapapp;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+/**
+ TapDetailViewModel:
+ Holds the tap shown by TapView across rotation. The detail fetch goes through
+ TapDetailCache, and leaving the screen detaches from it, which cancels the request
+ unless another screen is waiting on the same tap.
+ */
+public class TapDetailViewModel extends ViewModel {
+
+    private final MutableLiveData<Tap> m_tap = new MutableLiveData<>();
+    private final MutableLiveData<String> m_error = new MutableLiveData<>();
+
+    private String m_id;
+    private Runnable m_detach;
+
+    public LiveData<Tap> getTap() {
+        return m_tap;
+    }
+
+    // One-off message, call errorShown() once it has been displayed
+    public LiveData<String> getError() {
+        return m_error;
+    }
+
+    public void errorShown() {
+        m_error.setValue(null);
+    }
+
+    /**
+     Paints straight away from the cached record or the list row's summary, and only goes
+     to the server when the cached detail is missing or older than its TTL (and for an
+     old one, only while the rate limit budget isn't low).
+     Calls for the tap that is already loaded (e.g. after rotation) do nothing.
+     */
+    public void load(String id, Tap summary) {
+        if (id.equals(m_id)) return;
+        m_id = id;
+
+        TapDetailCache cache = TapDetailCache.get();
+        Tap cached = cache.peek(id);
+        if (cached != null) {
+            m_tap.setValue(cached);
+        } else if (summary != null) {
+            m_tap.setValue(summary);
+        }
+
+        boolean stale = cached != null && !cache.isFresh(id);
+        if (cached == null || (stale && !ApiClient.get().getGovernor().isBudgetLow())) {
+            m_detach = cache.fetch(id, new TapDetailCache.Callback() {
+                @Override
+                public void onTap(Tap tap) {
+                    m_tap.postValue(tap);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    e.printStackTrace();
+                    if (m_tap.getValue() == null) {
+                        m_error.postValue("Unable to load tap");
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        if (m_detach != null) {
+            m_detach.run();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.thetapapp;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ TapJsonDecoder:
+ Streams tap JSON straight from a response body into Tap objects.
+ Nothing is buffered into a String or an org.json tree first, so a large catalog only
+ exists once in memory, as the final List<Tap>.
+ */
+public final class TapJsonDecoder {
+
+    // Upper bound for pre-sizing the list from "count", so a bogus count can't allocate a huge array
+    private static final int MAX_PRESIZE = 1 << 16;
+
+    private TapJsonDecoder() {
+    }
+
+    /**
+     Decodes a {"success", "count", "version", "nextCursor", "data": [...]} envelope.
+     Missing or non-array "data" gives an empty list rather than an error,
+     which is what the query endpoint sends back when nothing matches.
+     */
+    public static TapListResponse readTapList(InputStream in) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        boolean success = false;
+        int count = 0;
+        String nextCursor = null;
+        long version = -1;
+        List<Tap> taps = null;
+
+        // The attribute columns only have a handful of distinct values, so share one String per value
+        Map<String, String> attributePool = new HashMap<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "success":
+                    success = readBoolean(reader);
+                    break;
+                case "count":
+                    count = readInt(reader);
+                    break;
+                case "nextCursor":
+                    nextCursor = readString(reader);
+                    break;
+                case "version":
+                    version = readLong(reader);
+                    break;
+                case "data":
+                    if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        taps = new ArrayList<>(Math.min(count, MAX_PRESIZE));
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            taps.add(readTap(reader, attributePool));
+                        }
+                        reader.endArray();
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new TapListResponse(success, taps != null ? taps : new ArrayList<>(), nextCursor, version);
+    }
+
+    /**
+     Decodes the delta sync envelope {"success", "since", "version", "upserts": [...], "deleted": [ids]}.
+     */
+    public static TapChanges readChanges(InputStream in) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        long version = -1;
+        List<Tap> upserts = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        Map<String, String> attributePool = new HashMap<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("version")) {
+                version = readLong(reader);
+            } else if (name.equals("upserts") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    upserts.add(readTap(reader, attributePool));
+                }
+                reader.endArray();
+            } else if (name.equals("deleted") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String id = readString(reader);
+                    if (id != null) deleted.add(id);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new TapChanges(version, upserts, deleted);
+    }
+
+    /**
+     Decodes the single tap endpoint's {"success", "data": {...}} envelope.
+     "data" is also accepted as a one-element array. Returns null when there is no tap.
+     */
+    public static Tap readTapDetail(InputStream in) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Map<String, String> attributePool = new HashMap<>();
+        Tap tap = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("data")) {
+                reader.skipValue();
+                continue;
+            }
+
+            JsonToken token = reader.peek();
+            if (token == JsonToken.BEGIN_OBJECT) {
+                tap = readTap(reader, attributePool);
+            } else if (token == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (tap == null && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        tap = readTap(reader, attributePool);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return tap;
+    }
+
+    /**
+     Reads one tap object. The server stores the liquid type as "liquid_type" while older
+     records use "category", both end up in Tap.category.
+     */
+    static Tap readTap(JsonReader reader, Map<String, String> attributePool) throws IOException {
+        String id = null, title = null, description = null, imageUrl = null, imageVariants = null;
+        String containerType = null, material = null, size = null, flowRate = null, category = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "id":
+                    id = readString(reader);
+                    break;
+                case "title":
+                    title = readString(reader);
+                    break;
+                case "description":
+                    description = readString(reader);
+                    break;
+                case "image_url":
+                    imageUrl = readString(reader);
+                    break;
+                case "image_variants":
+                    imageVariants = readString(reader);
+                    break;
+                case "container_type":
+                    containerType = pooled(attributePool, readString(reader));
+                    break;
+                case "material":
+                    material = pooled(attributePool, readString(reader));
+                    break;
+                case "size":
+                    size = pooled(attributePool, readString(reader));
+                    break;
+                case "flow_rate":
+                    flowRate = pooled(attributePool, readString(reader));
+                    break;
+                case "liquid_type":
+                case "category":
+                    category = pooled(attributePool, readString(reader));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new Tap(id, title, description, imageUrl, imageVariants, containerType, material, size, flowRate, category);
+    }
+
+    // Lenient about types: the Redis hashes are all strings, but ids and flags may come through as numbers
+    private static String readString(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                reader.skipValue();
+                return null;
+        }
+    }
+
+    private static boolean readBoolean(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        }
+        return "true".equals(readString(reader));
+    }
+
+    private static int readInt(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NUMBER) {
+            return Math.max(0, reader.nextInt());
+        }
+        reader.skipValue();
+        return 0;
+    }
+
+    private static long readLong(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NUMBER) {
+            return reader.nextLong();
+        }
+        reader.skipValue();
+        return -1;
+    }
+
+    private static String pooled(Map<String, String> pool, String value) {
+        if (value == null) return null;
+        String shared = pool.get(value);
+        if (shared == null) {
+            pool.put(value, value);
+            shared = value;
+        }
+        return shared;
+    }
+}
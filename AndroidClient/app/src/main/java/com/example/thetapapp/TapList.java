@@ -1,6 +1,4 @@
 package com.example.thetapapp;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -10,13 +8,33 @@ import android.view.LayoutInflater;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import java.util.ArrayList;
+import java.util.List;
+
 
 public class TapList extends LinearLayout {
 
-    private JSONArray m_data;
+    /**
+     Told when the user has scrolled within PREFETCH_DISTANCE rows of the end of the list.
+     Whoever owns the data decides whether there is another page and that only one is in flight.
+     */
+    public interface OnLoadMoreListener {
+        void onLoadMore();
+    }
+
+    // How many rows before the end of the list the next page gets requested
+    static final int PREFETCH_DISTANCE = 15;
+
+    // How many rows past the last visible one get their thumbnail prefetched when scrolling stops
+    static final int IMAGE_PREFETCH_ROWS = 6;
+
+    private List<Tap> m_data;
     private RecyclerView m_listView;
     private TapListAdapter m_adapter;
     private TextView m_warningText;
+    private int m_thumbnailSize;
+
+    private OnLoadMoreListener m_loadMoreListener;
 
     public TapList(Context context) {
         super(context);
@@ -38,8 +56,33 @@ public class TapList extends LinearLayout {
         LayoutInflater.from(context).inflate(R.layout.activity_tap_list, this, true);
         m_listView = findViewById(R.id.tapListRecyclerView);
         m_listView.setLayoutManager(new LinearLayoutManager(context));
+        m_adapter = new TapListAdapter(context);
+        m_listView.setAdapter(m_adapter);
         m_warningText = findViewById(R.id.warningText);
 
+        m_thumbnailSize = getResources().getDimensionPixelSize(R.dimen.tap_thumbnail_size);
+
+        m_listView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                requestMoreIfNeeded();
+            }
+
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                ThumbnailLoader loader = ThumbnailLoader.get(getContext());
+                // Rows fly past too fast during a fling to be worth decoding
+                if (newState == RecyclerView.SCROLL_STATE_SETTLING) {
+                    loader.pauseList();
+                } else {
+                    loader.resumeList();
+                }
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    prefetchThumbnails();
+                    prefetchDetails();
+                }
+            }
+        });
     }
 
     public void setWarningText(int visible, String warningText) {
@@ -47,12 +90,54 @@ public class TapList extends LinearLayout {
         m_warningText.setText(warningText);
     }
 
-    public void setData(JSONObject resp) {
-        try {
-            m_data = resp.getJSONArray("data");
-            m_adapter = new TapListAdapter(m_data, getContext());
-            m_listView.setAdapter(m_adapter);
-        } catch (Exception e) {
+    public void setOnLoadMoreListener(OnLoadMoreListener listener) {
+        m_loadMoreListener = listener;
+    }
+
+    // The adapter diffs against what is on screen, so only changed rows are touched
+    public void setData(List<Tap> taps) {
+        m_data = taps;
+        // A short page might not fill the screen, check again once it has been applied
+        m_adapter.setData(m_data, () -> m_listView.post(this::requestMoreIfNeeded));
+    }
+
+    private void requestMoreIfNeeded() {
+        if (m_loadMoreListener == null) return;
+
+        int count = m_data != null ? m_data.size() : 0;
+        int lastVisible = ((LinearLayoutManager) m_listView.getLayoutManager()).findLastVisibleItemPosition();
+        if (count > 0 && lastVisible + PREFETCH_DISTANCE < count) return;
+
+        m_loadMoreListener.onLoadMore();
+    }
+
+    private void prefetchThumbnails() {
+        if (m_data == null) return;
+
+        int lastVisible = ((LinearLayoutManager) m_listView.getLayoutManager()).findLastVisibleItemPosition();
+        if (lastVisible < 0) return;
+
+        ThumbnailLoader loader = ThumbnailLoader.get(getContext());
+        int end = Math.min(m_data.size(), lastVisible + 1 + IMAGE_PREFETCH_ROWS);
+        for (int i = lastVisible + 1; i < end; i++) {
+            loader.prefetchThumbnail(ImageVariants.urlFor(m_data.get(i), m_thumbnailSize), m_thumbnailSize);
+        }
+    }
+
+    // Visible rows and the next few are the ones likely to be opened, TapDetailCache batches them
+    private void prefetchDetails() {
+        if (m_data == null) return;
+
+        LinearLayoutManager layout = (LinearLayoutManager) m_listView.getLayoutManager();
+        int first = layout.findFirstVisibleItemPosition();
+        int lastVisible = layout.findLastVisibleItemPosition();
+        if (first < 0) return;
+
+        int end = Math.min(m_data.size(), lastVisible + 1 + IMAGE_PREFETCH_ROWS);
+        List<String> ids = new ArrayList<>(end - first);
+        for (int i = first; i < end; i++) {
+            ids.add(m_data.get(i).getId());
         }
+        TapDetailCache.get().prefetch(ids);
     }
 }
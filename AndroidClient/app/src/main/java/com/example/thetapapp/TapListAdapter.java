@@ -3,19 +3,52 @@ package com.example.thetapapp;
 import android.content.Context;
 import android.view.ViewGroup;
 import android.view.View;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import java.util.List;
+
+/**
+ TapListAdapter:
+ Every new list is diffed against the current one on a background thread (ListAdapter),
+ so a refresh only inserts, removes and rebinds the rows that actually changed.
+ Item ids are stable and come from the tap id, which lets RecyclerView keep a row's
+ ViewHolder (and its loaded image) across updates.
+ */
+public class TapListAdapter extends ListAdapter<Tap, TapListAdapter.ViewHolder> {
+
+    static final DiffUtil.ItemCallback<Tap> DIFF_CALLBACK = new DiffUtil.ItemCallback<Tap>() {
+        @Override
+        public boolean areItemsTheSame(Tap oldItem, Tap newItem) {
+            return oldItem.getId() != null && oldItem.getId().equals(newItem.getId());
+        }
 
-public class TapListAdapter extends RecyclerView.Adapter<TapListAdapter.ViewHolder> {
+        @Override
+        public boolean areContentsTheSame(Tap oldItem, Tap newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
 
-    private JSONArray m_data;
     private Context m_context;
 
-    public TapListAdapter(JSONArray data, Context context) {
-        m_data = data;
+    public TapListAdapter(Context context) {
+        // Diff on the shared scheduler rather than ListAdapter's own unbounded thread pool
+        super(new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                .setBackgroundThreadExecutor(TaskScheduler.get().executor(TaskScheduler.Priority.USER_VISIBLE))
+                .build());
         m_context = context;
+        setHasStableIds(true);
+    }
+
+    public void setData(List<Tap> data) {
+        submitList(data);
+    }
+
+    // commitCallback runs on the main thread once the diff has been applied
+    public void setData(List<Tap> data, Runnable commitCallback) {
+        submitList(data, commitCallback);
     }
 
     @Override
@@ -26,25 +59,29 @@ public class TapListAdapter extends RecyclerView.Adapter<TapListAdapter.ViewHold
 
     @Override
     public void onBindViewHolder(ViewHolder holder, int position) {
-        try {
-            JSONObject tap = m_data.getJSONObject(position);
-            holder.tapButton.ConstructButton(
-                    tap.optString("title"),
-                    tap.optString("description"),
-                    tap.optString("image_url"),
-                    tap.optString("id")
-            );
-
-
-        } catch (Exception e) {
-
-        }
+        long start = System.nanoTime();
+        holder.tapButton.ConstructButton(getItem(position));
+        Metrics.get().recordSince("list.bind", start);
     }
 
+    @Override
+    public void onViewRecycled(ViewHolder holder) {
+        holder.tapButton.cancelImage();
+    }
 
     @Override
-    public int getItemCount() {
-        return m_data.length();
+    public long getItemId(int position) {
+        return stableId(getItem(position).getId());
+    }
+
+    // Tap ids are creation timestamps, so they usually are longs already
+    static long stableId(String id) {
+        if (id == null) return RecyclerView.NO_ID;
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return (id.hashCode() & 0xffffffffL) | (1L << 62);
+        }
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,44 @@
+package com.example.thetapapp;
+
+import java.util.List;
+
+/**
+ TapListResponse:
+ The decoded envelope of a tap list endpoint ({"success", "count", "version", "nextCursor", "data"}).
+ */
+public class TapListResponse {
+
+    private final boolean m_success;
+    private final List<Tap> m_taps;
+    private final String m_nextCursor;
+    private final long m_version;
+
+    public TapListResponse(boolean success, List<Tap> taps, String nextCursor) {
+        this(success, taps, nextCursor, -1);
+    }
+
+    public TapListResponse(boolean success, List<Tap> taps, String nextCursor, long version) {
+        m_success = success;
+        m_taps = taps;
+        m_nextCursor = nextCursor;
+        m_version = version;
+    }
+
+    public boolean isSuccess() {
+        return m_success;
+    }
+
+    public List<Tap> getTaps() {
+        return m_taps;
+    }
+
+    // Cursor for the next page in paged mode, null on the last page or for unpaged responses
+    public String getNextCursor() {
+        return m_nextCursor;
+    }
+
+    // Catalog version the taps belong to (what delta sync asks from next), -1 when not sent
+    public long getVersion() {
+        return m_version;
+    }
+}
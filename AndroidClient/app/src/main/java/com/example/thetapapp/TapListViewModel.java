@@ -0,0 +1,206 @@
+package com.example.thetapapp;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ TapListViewModel:
+ Loads the catalog for ViewAllTapsActivity. It outlives rotation, so a new Activity
+ instance just observes the load that is already running instead of starting another one.
+ Owns the paging state (cursor, page in flight) that used to live in the view.
+ On first run only the first page is paged in. The rest of the catalog follows in one
+ request, because every page costs one of the rate limiter's few requests: paging through
+ a big catalog would get the user blocked before anything was cached. Paging on scroll is
+ the fallback for when that request fails.
+ Everything in flight is cancelled, socket included, once the screen is really left.
+ */
+public class TapListViewModel extends AndroidViewModel {
+
+    // A failed revalidation is retried this many times, after RequestGovernor.retryDelayMs()
+    static final int MAX_REVALIDATE_RETRIES = 3;
+
+    private final MutableLiveData<List<Tap>> m_taps = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> m_loading = new MutableLiveData<>(false);
+    private final MutableLiveData<String> m_error = new MutableLiveData<>();
+    private final CancellationToken m_token = new CancellationToken();
+    private final Handler m_mainHandler = new Handler(Looper.getMainLooper());
+
+    private boolean m_started;
+    private boolean m_paging;
+    private String m_nextCursor;
+    private boolean m_hasMorePages;
+    private boolean m_pageInFlight;
+    // The rest of the catalog is on its way, paging waits for it instead of costing requests
+    private boolean m_restInFlight;
+
+    public TapListViewModel(@NonNull Application application) {
+        super(application);
+    }
+
+    public LiveData<List<Tap>> getTaps() {
+        return m_taps;
+    }
+
+    public LiveData<Boolean> isLoading() {
+        return m_loading;
+    }
+
+    // One-off message, call errorShown() once it has been displayed
+    public LiveData<String> getError() {
+        return m_error;
+    }
+
+    public void errorShown() {
+        m_error.setValue(null);
+    }
+
+    /**
+     Shows the on-device catalog straight away, then revalidates it with the server unless
+     that was done a few minutes ago.
+     With nothing cached yet (first run) the catalog is paged in instead, so the first rows
+     show up after one small request rather than after the whole download.
+     Only the first call does anything, later ones (e.g. after rotation) reuse that load.
+     */
+    public void start() {
+        if (m_started) return;
+        m_started = true;
+
+        TapCatalogRepository repository = TapCatalogRepository.get(getApplication());
+        TaskScheduler scheduler = TaskScheduler.get();
+        scheduler.submit(TaskScheduler.Priority.USER_VISIBLE, m_token, () -> {
+            List<Tap> cached = repository.loadCached();
+            if (cached.isEmpty()) {
+                m_loading.postValue(true);
+                startPaging();
+                return;
+            }
+
+            m_taps.postValue(cached);
+            // Freshly synced in the background, no need to touch the network at all
+            if (repository.isValidatedWithin(TapCatalogRepository.REVALIDATE_AFTER_MS)) return;
+
+            // The cached rows are already up, checking them is behind anything the user waits on
+            scheduler.submit(TaskScheduler.Priority.PREFETCH, m_token, () -> revalidate(repository, 0));
+        });
+    }
+
+    private void revalidate(TapCatalogRepository repository, int attempt) {
+        try {
+            List<Tap> fresh = repository.revalidate(m_token);
+
+            // null means 304, what is on screen is already current
+            if (fresh != null) {
+                m_taps.postValue(fresh);
+            }
+
+        } catch (Exception e) {
+            // The cached list stays usable offline, try again later with jitter rather than right away
+            if (m_token.isCancelled()) return;
+            e.printStackTrace();
+            if (attempt < MAX_REVALIDATE_RETRIES) {
+                long delay = ApiClient.get().getGovernor().retryDelayMs(attempt);
+                TaskScheduler.get().schedule(TaskScheduler.Priority.PREFETCH, delay, m_token,
+                        () -> revalidate(repository, attempt + 1));
+            }
+        }
+    }
+
+    private void startPaging() {
+        runOnMain(() -> {
+            m_paging = true;
+            m_hasMorePages = true;
+            m_taps.setValue(new ArrayList<>());
+            loadMore();
+        });
+    }
+
+    /**
+     Requests the next page, if the catalog is being paged in and no page is in flight.
+     Main thread only.
+     */
+    public void loadMore() {
+        if (!m_paging || !m_hasMorePages || m_pageInFlight || m_restInFlight || m_token.isCancelled()) return;
+        m_pageInFlight = true;
+
+        String cursor = m_nextCursor;
+        TapCatalogRepository repository = TapCatalogRepository.get(getApplication());
+        TaskScheduler.get().submit(TaskScheduler.Priority.USER_VISIBLE, m_token, () -> {
+            try {
+                TapListResponse page = repository.fetchPage(cursor, m_token);
+                runOnMain(() -> {
+                    m_pageInFlight = false;
+                    m_nextCursor = page.getNextCursor();
+                    m_hasMorePages = page.getNextCursor() != null;
+                    m_loading.setValue(false);
+
+                    List<Tap> current = m_taps.getValue();
+                    List<Tap> combined = new ArrayList<>(current.size() + page.getTaps().size());
+                    combined.addAll(current);
+                    combined.addAll(page.getTaps());
+                    m_taps.setValue(combined);
+
+                    if (cursor == null && m_hasMorePages) {
+                        loadRest(repository);
+                    }
+                });
+
+            } catch (Exception e) {
+                if (m_token.isCancelled()) return;
+                e.printStackTrace();
+                runOnMain(() -> {
+                    // Left retryable, the next scroll asks for the same page again
+                    m_pageInFlight = false;
+                    m_loading.setValue(false);
+                    m_error.setValue(ApiClient.get().getGovernor().describeFailure("Failed to load taps"));
+                });
+            }
+        });
+    }
+
+    /**
+     Downloads the whole catalog in one request once the first page is up, and replaces
+     the paged rows with it. On failure paging carries on from where it is.
+     Main thread only.
+     */
+    private void loadRest(TapCatalogRepository repository) {
+        m_restInFlight = true;
+        // The first rows are up, the rest is behind anything the user waits on
+        TaskScheduler.get().submit(TaskScheduler.Priority.PREFETCH, m_token, () -> {
+            try {
+                List<Tap> fresh = repository.revalidate(m_token);
+                // null when something else saved the catalog meanwhile
+                List<Tap> taps = fresh != null ? fresh : repository.loadCached();
+                runOnMain(() -> {
+                    m_restInFlight = false;
+                    if (taps.isEmpty()) return;
+                    m_paging = false;
+                    m_hasMorePages = false;
+                    m_taps.setValue(taps);
+                });
+
+            } catch (Exception e) {
+                if (m_token.isCancelled()) return;
+                e.printStackTrace();
+                runOnMain(() -> m_restInFlight = false);
+            }
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        m_token.cancel();
+    }
+
+    private void runOnMain(Runnable action) {
+        m_mainHandler.post(action);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.thetapapp;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ TapQueryIndex:
+ Answers the QueryTapsActivity filters from the cached catalog instead of the server.
+ Every attribute has a small set of values, so each value keeps a BitSet of the catalog
+ positions that have it. A query is then an AND of at most five BitSets, which is a few
+ hundred word operations even for 100k taps.
+ Immutable once built; build a new one when the catalog changes.
+ */
+public class TapQueryIndex {
+
+    // Same keys QueryTapsActivity puts in its filter object
+    public static final String[] ATTRIBUTES = {
+            "container_type", "material", "size", "flow_rate", "category"
+    };
+
+    private final List<Tap> m_taps;
+    private final List<Map<String, BitSet>> m_index;
+
+    public TapQueryIndex(List<Tap> taps) {
+        m_taps = taps;
+        m_index = new ArrayList<>(ATTRIBUTES.length);
+        for (int a = 0; a < ATTRIBUTES.length; a++) {
+            m_index.add(new HashMap<>());
+        }
+
+        // A snapshot-backed catalog hands out its attribute values without decoding whole rows
+        TapSnapshot snapshot = taps instanceof TapSnapshot.SnapshotList
+                ? ((TapSnapshot.SnapshotList) taps).snapshot() : null;
+
+        for (int i = 0; i < taps.size(); i++) {
+            Tap tap = snapshot == null ? taps.get(i) : null;
+            for (int a = 0; a < ATTRIBUTES.length; a++) {
+                String value = snapshot != null ? snapshot.getAttribute(i, a) : attributeValue(tap, a);
+                if (value == null) continue;
+
+                BitSet positions = m_index.get(a).get(value);
+                if (positions == null) {
+                    positions = new BitSet(taps.size());
+                    m_index.get(a).put(value, positions);
+                }
+                positions.set(i);
+            }
+        }
+    }
+
+    /**
+     Catalog positions matching every filter. Unknown keys are ignored, an empty
+     filter matches everything.
+     */
+    public BitSet match(Map<String, String> filters) {
+        BitSet result = new BitSet(m_taps.size());
+        result.set(0, m_taps.size());
+
+        for (int a = 0; a < ATTRIBUTES.length && !result.isEmpty(); a++) {
+            String wanted = filters.get(ATTRIBUTES[a]);
+            if (wanted == null) continue;
+
+            BitSet positions = m_index.get(a).get(wanted);
+            if (positions == null) {
+                result.clear();
+            } else {
+                result.and(positions);
+            }
+        }
+        return result;
+    }
+
+    /**
+     For every attribute, how many taps each of its values would match given the filters
+     on the other attributes (the attribute's own filter is left out, so switching a
+     spinner to another value shows what that value would give). Indexed like ATTRIBUTES;
+     values that occur nowhere in the catalog are missing, i.e. count 0.
+     Costs a handful of BitSet ANDs, a fraction of a millisecond even for 100k taps.
+     */
+    public List<Map<String, Integer>> facetCounts(Map<String, String> filters) {
+        // Taps matching every filter except attribute a's, shared via prefix/suffix ANDs
+        BitSet[] prefix = new BitSet[ATTRIBUTES.length + 1];
+        BitSet[] suffix = new BitSet[ATTRIBUTES.length + 1];
+        prefix[0] = allPositions();
+        suffix[ATTRIBUTES.length] = allPositions();
+        for (int a = 0; a < ATTRIBUTES.length; a++) {
+            prefix[a + 1] = narrowed(prefix[a], a, filters);
+        }
+        for (int a = ATTRIBUTES.length - 1; a >= 0; a--) {
+            suffix[a] = narrowed(suffix[a + 1], a, filters);
+        }
+
+        List<Map<String, Integer>> counts = new ArrayList<>(ATTRIBUTES.length);
+        for (int a = 0; a < ATTRIBUTES.length; a++) {
+            BitSet others = (BitSet) prefix[a].clone();
+            others.and(suffix[a + 1]);
+
+            Map<String, Integer> valueCounts = new HashMap<>();
+            for (Map.Entry<String, BitSet> value : m_index.get(a).entrySet()) {
+                BitSet matches = (BitSet) value.getValue().clone();
+                matches.and(others);
+                valueCounts.put(value.getKey(), matches.cardinality());
+            }
+            counts.add(valueCounts);
+        }
+        return counts;
+    }
+
+    private BitSet allPositions() {
+        BitSet all = new BitSet(m_taps.size());
+        all.set(0, m_taps.size());
+        return all;
+    }
+
+    // positions with attribute a's filter applied, the same BitSet when a isn't filtered on
+    private BitSet narrowed(BitSet positions, int a, Map<String, String> filters) {
+        String wanted = filters.get(ATTRIBUTES[a]);
+        if (wanted == null) return positions;
+
+        BitSet result = (BitSet) positions.clone();
+        BitSet matching = m_index.get(a).get(wanted);
+        if (matching == null) {
+            result.clear();
+        } else {
+            result.and(matching);
+        }
+        return result;
+    }
+
+    public List<Tap> query(Map<String, String> filters) {
+        BitSet matches = match(filters);
+        List<Tap> result = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            result.add(m_taps.get(i));
+        }
+        return result;
+    }
+
+    public int size() {
+        return m_taps.size();
+    }
+
+    /**
+     Heap held by the index for MemoryBudget, an estimate. The taps belong to the catalog.
+     */
+    public long estimateBytes() {
+        long bytes = 0;
+        for (Map<String, BitSet> values : m_index) {
+            for (BitSet positions : values.values()) {
+                // Map entry and BitSet, then its words
+                bytes += 56 + positions.size() / 8;
+            }
+        }
+        return bytes;
+    }
+
+    public static String attributeValue(Tap tap, int attribute) {
+        switch (attribute) {
+            case 0: return tap.getContainer_type();
+            case 1: return tap.getMaterial();
+            case 2: return tap.getSize();
+            case 3: return tap.getFlow_rate();
+            case 4: return tap.getCategory();
+            default: throw new IllegalArgumentException("Unknown attribute " + attribute);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.thetapapp;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ TapSearchViewModel:
+ Search-as-you-type for SearchTapsActivity, answered from TapTextIndex over the cached
+ catalog. Keystrokes are debounced, the lookup runs on the scheduler, and a query that has
+ been overtaken by newer typing is cancelled or its result dropped, so the list only ever
+ shows the latest one.
+ */
+public class TapSearchViewModel extends AndroidViewModel {
+
+    // Quiet time after the last keystroke before searching
+    static final long DEBOUNCE_MS = 200;
+
+    private final MutableLiveData<List<Tap>> m_results = new MutableLiveData<>();
+    private final MutableLiveData<String> m_error = new MutableLiveData<>();
+    private final CancellationToken m_token = new CancellationToken();
+    private final Handler m_mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable m_runSearch = this::runSearch;
+
+    private String m_query = "";
+    private String m_shownQuery;
+    private int m_generation;
+    private TaskScheduler.Task m_task;
+
+    public TapSearchViewModel(@NonNull Application application) {
+        super(application);
+    }
+
+    public LiveData<List<Tap>> getResults() {
+        return m_results;
+    }
+
+    // One-off message, call errorShown() once it has been displayed
+    public LiveData<String> getError() {
+        return m_error;
+    }
+
+    public void errorShown() {
+        m_error.setValue(null);
+    }
+
+    /**
+     Called for every edit of the search box, main thread only.
+     */
+    public void setQuery(String query) {
+        m_query = query.trim();
+        m_mainHandler.removeCallbacks(m_runSearch);
+        m_mainHandler.postDelayed(m_runSearch, DEBOUNCE_MS);
+    }
+
+    private void runSearch() {
+        String query = m_query;
+        // e.g. the same text again after a rotation
+        if (query.equals(m_shownQuery)) return;
+
+        int generation = ++m_generation;
+        if (m_task != null) {
+            m_task.cancel();
+        }
+        if (query.isEmpty()) {
+            m_shownQuery = query;
+            m_results.setValue(new ArrayList<>());
+            return;
+        }
+
+        TapCatalogRepository repository = TapCatalogRepository.get(getApplication());
+        m_task = TaskScheduler.get().submit(TaskScheduler.Priority.USER_VISIBLE, m_token, () -> {
+            try {
+                TapTextIndex index = repository.getTextIndex();
+                if (index == null) {
+                    // Nothing on the device yet, fetch the catalog once and search that
+                    repository.revalidate(m_token);
+                    index = repository.getTextIndex();
+                }
+
+                long start = System.nanoTime();
+                List<Tap> results = index != null ? index.search(query) : new ArrayList<>();
+                Metrics.get().recordSince("search.query", start);
+
+                m_mainHandler.post(() -> {
+                    if (generation != m_generation) return;
+                    m_shownQuery = query;
+                    m_results.setValue(results);
+                });
+
+            } catch (Exception e) {
+                if (m_token.isCancelled()) return;
+                e.printStackTrace();
+                m_error.postValue("Search is unavailable until the taps have been downloaded");
+            }
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        m_mainHandler.removeCallbacks(m_runSearch);
+        m_token.cancel();
+    }
+}
@@ -0,0 +1,368 @@
+package com.example.thetapapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.zip.CRC32;
+
+/**
+ TapSnapshot:
+ The on-device catalog as one compact binary file that is memory-mapped on open, so a cold
+ start shows the list without reading every row into objects first.
+ Layout (big-endian):
+ - header: magic, format version, row count, dictionary size, string table length and a
+   CRC32 of everything after the header,
+ - rows: fixed-size records with (offset, length) into the string table for id, title,
+   description, image_url and image_variants, and a dictionary code per TapQueryIndex attribute,
+ - dictionary: (offset, length) of each distinct attribute value,
+ - string table: the UTF-8 bytes.
+ Rows are decoded one at a time as they are asked for (asList() hands out Taps lazily), the
+ handful of attribute values are decoded once on open and shared by every row. asList()
+ keeps the last ROW_CACHE_ROWS rows it decoded, so a list diff or a rebind that reads the
+ same rows again gets the same Taps back; MemoryBudget can trim it (trimRowCache()).
+ A bad magic, length or checksum throws CorruptSnapshotException, a different format version
+ throws too, and either way the caller drops the file and reloads from the network.
+ */
+public final class TapSnapshot {
+
+    static final int MAGIC = 0x54415053; // "TAPS"
+    static final int FORMAT_VERSION = 2;
+
+    static final int HEADER_BYTES = 24;
+    private static final int STRING_FIELDS = 5;
+    static final int ROW_BYTES = STRING_FIELDS * 8 + TapQueryIndex.ATTRIBUTES.length * 2;
+
+    // Dictionary code and string length for a null value
+    private static final int NO_VALUE = 0xFFFF;
+    private static final int NULL_LENGTH = -1;
+
+    // Covers a list diff over a typical catalog, which reads every row more than once
+    static final int ROW_CACHE_ROWS = 1024;
+
+    private static final int FIELD_ID = 0;
+    private static final int FIELD_TITLE = 1;
+    private static final int FIELD_DESCRIPTION = 2;
+    private static final int FIELD_IMAGE_URL = 3;
+    private static final int FIELD_IMAGE_VARIANTS = 4;
+
+    /**
+     The file isn't a snapshot this version can read; it should be deleted and rebuilt.
+     */
+    public static class CorruptSnapshotException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        CorruptSnapshotException(String message) {
+            super(message);
+        }
+    }
+
+    private final ByteBuffer m_buffer;
+    private final int m_size;
+    private final int m_stringsStart;
+    private final String[] m_dictionary;
+    private final SnapshotList m_list = new SnapshotList();
+
+    private TapSnapshot(ByteBuffer buffer, int size, int stringsStart, String[] dictionary) {
+        m_buffer = buffer;
+        m_size = size;
+        m_stringsStart = stringsStart;
+        m_dictionary = dictionary;
+    }
+
+    /**
+     Maps the snapshot file and checks it before any row is read.
+     */
+    public static TapSnapshot open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new CorruptSnapshotException("Bad snapshot length " + channel.size());
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        }
+    }
+
+    static TapSnapshot read(ByteBuffer buffer) throws CorruptSnapshotException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new CorruptSnapshotException("Not a tap snapshot");
+        }
+        int version = buffer.getInt(4);
+        if (version != FORMAT_VERSION) {
+            throw new CorruptSnapshotException("Snapshot format " + version + ", expected " + FORMAT_VERSION);
+        }
+
+        int size = buffer.getInt(8);
+        int dictionarySize = buffer.getInt(12);
+        int stringsLength = buffer.getInt(16);
+        int checksum = buffer.getInt(20);
+
+        long expectedLength = HEADER_BYTES + (long) size * ROW_BYTES + (long) dictionarySize * 8 + stringsLength;
+        if (size < 0 || dictionarySize < 0 || dictionarySize > NO_VALUE || stringsLength < 0
+                || expectedLength != buffer.capacity()) {
+            throw new CorruptSnapshotException("Snapshot length doesn't match its header");
+        }
+        if (checksum != checksum(buffer, HEADER_BYTES, buffer.capacity())) {
+            throw new CorruptSnapshotException("Snapshot checksum mismatch");
+        }
+
+        int dictionaryStart = HEADER_BYTES + size * ROW_BYTES;
+        int stringsStart = dictionaryStart + dictionarySize * 8;
+        TapSnapshot snapshot = new TapSnapshot(buffer, size, stringsStart, new String[dictionarySize]);
+        for (int i = 0; i < dictionarySize; i++) {
+            snapshot.m_dictionary[i] = snapshot.string(dictionaryStart + i * 8);
+        }
+        return snapshot;
+    }
+
+    /**
+     Writes the catalog next to the target and renames it into place, so a crash halfway
+     never leaves a half-written snapshot under the real name.
+     */
+    public static void write(List<Tap> taps, File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(encode(taps).array());
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to replace " + file);
+        }
+    }
+
+    static ByteBuffer encode(List<Tap> taps) {
+        List<byte[]> strings = new ArrayList<>();
+        int[] stringsLength = {0};
+
+        Map<String, Integer> codes = new HashMap<>();
+        List<int[]> dictionary = new ArrayList<>();
+
+        int[][] rowStrings = new int[taps.size()][STRING_FIELDS * 2];
+        int[][] rowCodes = new int[taps.size()][TapQueryIndex.ATTRIBUTES.length];
+
+        for (int i = 0; i < taps.size(); i++) {
+            Tap tap = taps.get(i);
+            String[] fields = {tap.getId(), tap.getTitle(), tap.getDescription(), tap.getImage_url(),
+                    tap.getImage_variants()};
+            for (int f = 0; f < STRING_FIELDS; f++) {
+                int[] ref = addString(fields[f], strings, stringsLength);
+                rowStrings[i][f * 2] = ref[0];
+                rowStrings[i][f * 2 + 1] = ref[1];
+            }
+
+            for (int a = 0; a < TapQueryIndex.ATTRIBUTES.length; a++) {
+                String value = TapQueryIndex.attributeValue(tap, a);
+                if (value == null) {
+                    rowCodes[i][a] = NO_VALUE;
+                    continue;
+                }
+                Integer code = codes.get(value);
+                if (code == null) {
+                    code = dictionary.size();
+                    if (code == NO_VALUE) {
+                        throw new IllegalArgumentException("Too many distinct attribute values");
+                    }
+                    codes.put(value, code);
+                    dictionary.add(addString(value, strings, stringsLength));
+                }
+                rowCodes[i][a] = code;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + taps.size() * ROW_BYTES
+                + dictionary.size() * 8 + stringsLength[0]);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(taps.size())
+                .putInt(dictionary.size()).putInt(stringsLength[0]).putInt(0);
+        for (int i = 0; i < taps.size(); i++) {
+            for (int ref : rowStrings[i]) {
+                buffer.putInt(ref);
+            }
+            for (int code : rowCodes[i]) {
+                buffer.putShort((short) code);
+            }
+        }
+        for (int[] ref : dictionary) {
+            buffer.putInt(ref[0]).putInt(ref[1]);
+        }
+        for (byte[] bytes : strings) {
+            buffer.put(bytes);
+        }
+        buffer.putInt(20, checksum(buffer, HEADER_BYTES, buffer.capacity()));
+        return buffer;
+    }
+
+    // Appends to the string table and returns its (offset, length), length -1 for null
+    private static int[] addString(String value, List<byte[]> strings, int[] stringsLength) {
+        if (value == null) return new int[]{0, NULL_LENGTH};
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int[] ref = {stringsLength[0], bytes.length};
+        strings.add(bytes);
+        stringsLength[0] += bytes.length;
+        return ref;
+    }
+
+    // CRC32.update(ByteBuffer) needs API 26, so copy through a small array instead
+    private static int checksum(ByteBuffer buffer, int from, int to) {
+        CRC32 crc = new CRC32();
+        ByteBuffer view = buffer.duplicate();
+        view.position(from);
+        view.limit(to);
+        byte[] chunk = new byte[8192];
+        while (view.hasRemaining()) {
+            int length = Math.min(chunk.length, view.remaining());
+            view.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public String getId(int row) {
+        return field(row, FIELD_ID);
+    }
+
+    public String getTitle(int row) {
+        return field(row, FIELD_TITLE);
+    }
+
+    public String getDescription(int row) {
+        return field(row, FIELD_DESCRIPTION);
+    }
+
+    public String getImageUrl(int row) {
+        return field(row, FIELD_IMAGE_URL);
+    }
+
+    public String getImageVariants(int row) {
+        return field(row, FIELD_IMAGE_VARIANTS);
+    }
+
+    /**
+     Attribute value by TapQueryIndex.ATTRIBUTES position, shared between rows (no decoding).
+     */
+    public String getAttribute(int row, int attribute) {
+        int code = m_buffer.getShort(rowStart(row) + STRING_FIELDS * 8 + attribute * 2) & 0xFFFF;
+        return code == NO_VALUE ? null : m_dictionary[code];
+    }
+
+    public Tap getTap(int row) {
+        return new Tap(getId(row), getTitle(row), getDescription(row), getImageUrl(row), getImageVariants(row),
+                getAttribute(row, 0), getAttribute(row, 1), getAttribute(row, 2),
+                getAttribute(row, 3), getAttribute(row, 4));
+    }
+
+    /**
+     Read-only list over the snapshot; get() decodes just that row, or hands out the Tap
+     it decoded for the row recently.
+     */
+    public List<Tap> asList() {
+        return m_list;
+    }
+
+    private int rowStart(int row) {
+        if (row < 0 || row >= m_size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + m_size);
+        }
+        return HEADER_BYTES + row * ROW_BYTES;
+    }
+
+    private String field(int row, int field) {
+        return string(rowStart(row) + field * 8);
+    }
+
+    // Decodes the (offset, length) reference stored at refPosition; absolute reads, so thread-safe
+    private String string(int refPosition) {
+        int offset = m_buffer.getInt(refPosition);
+        int length = m_buffer.getInt(refPosition + 4);
+        if (length == NULL_LENGTH) return null;
+
+        byte[] bytes = new byte[length];
+        int start = m_stringsStart + offset;
+        for (int i = 0; i < length; i++) {
+            bytes[i] = m_buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Heap held by the rows asList() keeps decoded, an estimate
+    public long rowCacheBytes() {
+        return m_list.cachedBytes();
+    }
+
+    // Drops the least recently read rows until at most maxBytes are held
+    public void trimRowCache(long maxBytes) {
+        m_list.trimCache(maxBytes);
+    }
+
+    final class SnapshotList extends AbstractList<Tap> implements RandomAccess {
+        // Row to decoded Tap, least recently read first; guarded by itself
+        private final LinkedHashMap<Integer, Tap> m_rows = new LinkedHashMap<Integer, Tap>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Tap> eldest) {
+                if (size() <= ROW_CACHE_ROWS) return false;
+                m_cachedBytes -= HeapSizes.estimateBytes(eldest.getValue());
+                return true;
+            }
+        };
+        private long m_cachedBytes;
+
+        @Override
+        public Tap get(int index) {
+            synchronized (m_rows) {
+                Tap cached = m_rows.get(index);
+                if (cached != null) return cached;
+            }
+            // Decoded outside the lock, two readers of the same row at once just both decode it
+            Tap tap = getTap(index);
+            synchronized (m_rows) {
+                if (m_rows.put(index, tap) == null) {
+                    m_cachedBytes += HeapSizes.estimateBytes(tap);
+                }
+            }
+            return tap;
+        }
+
+        long cachedBytes() {
+            synchronized (m_rows) {
+                return m_cachedBytes;
+            }
+        }
+
+        void trimCache(long maxBytes) {
+            synchronized (m_rows) {
+                Iterator<Tap> eldest = m_rows.values().iterator();
+                while (m_cachedBytes > maxBytes && eldest.hasNext()) {
+                    m_cachedBytes -= HeapSizes.estimateBytes(eldest.next());
+                    eldest.remove();
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return m_size;
+        }
+
+        TapSnapshot snapshot() {
+            return TapSnapshot.this;
+        }
+    }
+}
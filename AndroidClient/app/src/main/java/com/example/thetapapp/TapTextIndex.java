@@ -0,0 +1,224 @@
+package com.example.thetapapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ TapTextIndex:
+ Free-text search over tap titles and descriptions, for search-as-you-type.
+ An inverted index from each lower-cased word to the taps containing it. The words are
+ also kept sorted (re-sorted lazily after new words arrive) so every query word can match
+ as a prefix with a binary search ("bra 20" finds "Brass tap, 20mm").
+ A query is the AND of its words.
+ Delta syncs are applied in place with apply(): changed taps are retired and re-added at
+ the end instead of rebuilding the index, and it is only compacted once half of it is
+ retired taps. Thread-safe.
+ */
+public class TapTextIndex {
+
+    private static final class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+
+    private final List<Tap> m_docs = new ArrayList<>();
+    private final Map<String, Integer> m_docById = new HashMap<>();
+    private final BitSet m_live = new BitSet();
+    // Docs that are the index's own copies: a snapshot-backed catalog decodes a new Tap on
+    // every get(), so those aren't shared with the catalog and count towards the index
+    private final BitSet m_ownCopies = new BitSet();
+    private final Map<String, Postings> m_postings = new HashMap<>();
+
+    // m_postings' words in order, null when a word was added since the last sort
+    private String[] m_sortedWords;
+    private Postings[] m_sortedPostings;
+
+    public TapTextIndex(List<Tap> catalog) {
+        boolean ownCopies = catalog instanceof TapSnapshot.SnapshotList;
+        for (Tap tap : catalog) {
+            add(tap, ownCopies);
+        }
+    }
+
+    /**
+     Taps matching every word of the query, in catalog order (taps edited since the index
+     was built come last). An empty query matches nothing.
+     */
+    public synchronized List<Tap> search(String query) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) return new ArrayList<>();
+
+        BitSet matches = (BitSet) m_live.clone();
+        for (String word : words) {
+            if (matches.isEmpty()) break;
+            matches.and(docsWithPrefix(word));
+        }
+
+        List<Tap> result = new ArrayList<>(matches.cardinality());
+        for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+            result.add(m_docs.get(doc));
+        }
+        return result;
+    }
+
+    /**
+     Applies a delta sync: deleted taps are dropped, upserted ones (re)indexed.
+     */
+    public synchronized void apply(TapChanges changes) {
+        for (String id : changes.getDeleted()) {
+            retire(id);
+        }
+        for (Tap tap : changes.getUpserts()) {
+            retire(tap.getId());
+            // The same objects as in the catalog the delta was applied to
+            add(tap, false);
+        }
+
+        if (m_live.cardinality() * 2 < m_docs.size()) {
+            compact();
+        }
+    }
+
+    public synchronized int size() {
+        return m_live.cardinality();
+    }
+
+    /**
+     Heap held by the index for MemoryBudget, an estimate. Taps shared with the catalog
+     belong to it, decoded copies (retired ones too, until compaction) to the index.
+     */
+    public synchronized long estimateBytes() {
+        long bytes = 4L * m_docs.size() + 48L * m_docById.size() + m_live.size() / 4;
+        for (int doc = m_ownCopies.nextSetBit(0); doc >= 0; doc = m_ownCopies.nextSetBit(doc + 1)) {
+            bytes += HeapSizes.estimateBytes(m_docs.get(doc));
+        }
+        for (Map.Entry<String, Postings> entry : m_postings.entrySet()) {
+            // Map entry, the word, Postings and its array
+            bytes += 32 + HeapSizes.estimateBytes(entry.getKey()) + 40 + 4L * entry.getValue().docs.length;
+        }
+        if (m_sortedWords != null) {
+            bytes += 8L * m_sortedWords.length;
+        }
+        return bytes;
+    }
+
+    /**
+     Lower-cased runs of letters and digits, each word once, in order.
+     */
+    static List<String> tokenize(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        addWords(text, words);
+        return new ArrayList<>(words);
+    }
+
+    private static void addWords(String text, Set<String> words) {
+        if (text == null) return;
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+    private BitSet docsWithPrefix(String prefix) {
+        if (m_sortedWords == null) {
+            sortWords();
+        }
+
+        BitSet docs = new BitSet(m_docs.size());
+        int from = Arrays.binarySearch(m_sortedWords, prefix);
+        if (from < 0) from = -from - 1;
+        for (int w = from; w < m_sortedWords.length && m_sortedWords[w].startsWith(prefix); w++) {
+            Postings postings = m_sortedPostings[w];
+            for (int i = 0; i < postings.size; i++) {
+                docs.set(postings.docs[i]);
+            }
+        }
+        return docs;
+    }
+
+    private void sortWords() {
+        String[] words = m_postings.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        Postings[] postings = new Postings[words.length];
+        for (int w = 0; w < words.length; w++) {
+            postings[w] = m_postings.get(words[w]);
+        }
+        m_sortedWords = words;
+        m_sortedPostings = postings;
+    }
+
+    private void add(Tap tap, boolean ownCopy) {
+        int doc = m_docs.size();
+        m_docs.add(tap);
+        m_live.set(doc);
+        if (ownCopy) {
+            m_ownCopies.set(doc);
+        }
+        if (tap.getId() != null) {
+            m_docById.put(tap.getId(), doc);
+        }
+
+        Set<String> words = new HashSet<>();
+        addWords(tap.getTitle(), words);
+        addWords(tap.getDescription(), words);
+        for (String word : words) {
+            Postings postings = m_postings.get(word);
+            if (postings == null) {
+                postings = new Postings();
+                m_postings.put(word, postings);
+                m_sortedWords = null;
+            }
+            postings.add(doc);
+        }
+    }
+
+    // The retired doc stays in the postings, m_live filters it out of every search
+    private void retire(String id) {
+        Integer doc = m_docById.remove(id);
+        if (doc != null) {
+            m_live.clear(doc);
+        }
+    }
+
+    private void compact() {
+        List<Tap> live = new ArrayList<>(m_live.cardinality());
+        BitSet ownCopies = new BitSet();
+        for (int doc = m_live.nextSetBit(0); doc >= 0; doc = m_live.nextSetBit(doc + 1)) {
+            ownCopies.set(live.size(), m_ownCopies.get(doc));
+            live.add(m_docs.get(doc));
+        }
+
+        m_docs.clear();
+        m_docById.clear();
+        m_live.clear();
+        m_ownCopies.clear();
+        m_postings.clear();
+        m_sortedWords = null;
+        for (int i = 0; i < live.size(); i++) {
+            add(live.get(i), ownCopies.get(i));
+        }
+    }
+}
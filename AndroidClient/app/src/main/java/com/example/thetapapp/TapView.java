@@ -10,20 +10,20 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
-
-import com.squareup.picasso.Picasso;
-
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-
+import androidx.lifecycle.ViewModelProvider;
+
+/**
+ TapView:
+ Detail screen for one tap. It paints straight away from the tap the list row already
+ had (EXTRA_TAP) or from TapDetailCache, and only goes to the server when the cached
+ detail is missing or older than its TTL. The loading itself lives in TapDetailViewModel.
+ */
 public class TapView extends AppCompatActivity {
 
-    private String API_URL = "http://taptasticitdma.freedynamicdns.org:3000/api/public/taps/";
+    // The list row's Tap (Serializable), used to paint before the full record arrives
+    public static final String EXTRA_TAP = "tap";
+    // Just the id, for callers that don't have a Tap
+    public static final String EXTRA_TAP_ID = "tap_id";
 
     private TextView m_title;
     private TextView m_description;
@@ -36,7 +36,7 @@ public class TapView extends AppCompatActivity {
     private Button m_backHomeButton;
     private Button m_backListButton;
     private Button m_emailButton;
-    private JSONObject jsonObject;
+    private Tap m_tap;
 
 
     @Override
@@ -60,70 +60,61 @@ public class TapView extends AppCompatActivity {
         m_backListButton.setOnClickListener(v -> backToList());
         m_emailButton.setOnClickListener(v -> sendEmail());
 
-        String filtersJson = getIntent().getStringExtra("filters");
-        if (filtersJson != null) {
-            fetchTapDetail(filtersJson);
-        } else {
-            Toast.makeText(this, "No filters provided", Toast.LENGTH_SHORT).show();
+        Tap summary = (Tap) getIntent().getSerializableExtra(EXTRA_TAP);
+        String id = summary != null ? summary.getId() : getIntent().getStringExtra(EXTRA_TAP_ID);
+        if (id == null) {
+            Toast.makeText(this, "No tap provided", Toast.LENGTH_SHORT).show();
+            return;
         }
-    }
 
+        // Retained across rotation, so the detail fetch isn't started twice
+        TapDetailViewModel viewModel = new ViewModelProvider(this).get(TapDetailViewModel.class);
+        viewModel.getTap().observe(this, this::showTap);
+        viewModel.getError().observe(this, message -> {
+            if (message == null) return;
+            Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+            viewModel.errorShown();
+        });
+        viewModel.load(id, summary);
+    }
 
-    private void fetchTapDetail(String filtersJson) {
-        new Thread(() -> {
-            try {
-
-                URL url = new URL(API_URL + filtersJson);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("GET");
-
-                BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = in.readLine()) != null) {
-                    response.append(line);
-                }
-                in.close();
-
-                JSONObject jsonResponse = new JSONObject(response.toString());
-                Object dataObj = jsonResponse.get("data");
-
-                if (dataObj instanceof JSONArray) {
-                    jsonObject = ((JSONArray) dataObj).getJSONObject(0);
-                } else {
-                    jsonObject = (JSONObject) dataObj;
-                }
-
-                runOnUiThread(() -> {
-                    m_title.setText(jsonObject.optString("title"));
-                    m_description.setText(jsonObject.optString("description"));
-                    m_material.setText(jsonObject.optString("material"));
-                    m_containerType.setText(jsonObject.optString("container"));
-                    m_size.setText(jsonObject.optString("size"));
-                    m_flow.setText(jsonObject.optString("flow"));
-                    m_liquidType.setText(jsonObject.optString("category"));
-
-                    String imageURL = jsonObject.optString("image_url");
-
-                    Picasso.get()
-                            .load(imageURL)
-                            .into(m_imageView);
-                });
-
-            }catch(Exception e) {
-                e.getMessage();
-            }
-        }).start();
+    private void showTap(Tap tap) {
+        if (isFinishing() || isDestroyed()) return;
+
+        // The image spans the screen: a server copy on narrow screens, the original otherwise
+        int widthPx = getResources().getDisplayMetrics().widthPixels;
+        String previousImage = m_tap != null ? ImageVariants.urlFor(m_tap, widthPx) : null;
+        m_tap = tap;
+
+        m_title.setText(tap.getTitle());
+        m_description.setText(tap.getDescription());
+        m_material.setText(tap.getMaterial());
+        m_containerType.setText(tap.getContainer_type());
+        m_size.setText(tap.getSize());
+        m_flow.setText(tap.getFlow_rate());
+        m_liquidType.setText(tap.getCategory());
+
+        // Repainting with the full record must not restart an image load that's already going
+        String imageURL = ImageVariants.urlFor(tap, widthPx);
+        if (imageURL != null && !imageURL.isEmpty() && !imageURL.equals(previousImage)) {
+            ThumbnailLoader.get(this).picasso()
+                    .load(imageURL)
+                    .fit()
+                    .centerCrop()
+                    .into(m_imageView);
+        }
     }
 
     private void sendEmail() {
-        String title = jsonObject.optString("title", "No Title");
-        String description = jsonObject.optString("description", "No Description");
-        String material = jsonObject.optString("material", "N/A");
-        String container = jsonObject.optString("container", "N/A");
-        String size = jsonObject.optString("size", "N/A");
-        String flow = jsonObject.optString("flow", "N/A");
-        String category = jsonObject.optString("category", "N/A");
+        if (m_tap == null) return;
+
+        String title = orDefault(m_tap.getTitle(), "No Title");
+        String description = orDefault(m_tap.getDescription(), "No Description");
+        String material = orDefault(m_tap.getMaterial(), "N/A");
+        String container = orDefault(m_tap.getContainer_type(), "N/A");
+        String size = orDefault(m_tap.getSize(), "N/A");
+        String flow = orDefault(m_tap.getFlow_rate(), "N/A");
+        String category = orDefault(m_tap.getCategory(), "N/A");
 
         String subject = "Product Details: " + title;
         String body = "Product details:\n\n" +
@@ -148,6 +139,10 @@ public class TapView extends AppCompatActivity {
         }
 
     }
+    private static String orDefault(String value, String fallback) {
+        return value != null && !value.isEmpty() ? value : fallback;
+    }
+
     private void backToHome() {
         Intent intent = new Intent(TapView.this, MainActivity.class);
         startActivity(intent);
@@ -0,0 +1,334 @@
+package com.example.thetapapp;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ TaskScheduler:
+ The one place the client runs background work, instead of a new Thread per load.
+ - Foreground pool (FOREGROUND_THREADS workers) takes USER_VISIBLE, PREFETCH and IDLE work
+   from one priority queue, so whatever the user is waiting on jumps ahead of queued
+   prefetches and image decodes, and those ahead of IDLE work nobody is waiting for yet.
+   Equal priorities run in submission order.
+ - Ordering can't take back a worker that is already blocked on a download, so
+   USER_VISIBLE_THREADS more workers take USER_VISIBLE work only: a screen full of
+   thumbnails never holds up what the user asked for. USER_VISIBLE work is queued with
+   both pools and runs on whichever worker gets to it first.
+ - BACKGROUND_SYNC gets its own single low-priority worker, so a long sync can never hold
+   a foreground worker.
+ - Queued work can be cancelled, directly or through the CancellationToken it was submitted
+   with, and is then dropped from the queue without running.
+ - getStats() reports queue depth and how long work waited for a worker, per priority.
+ - schedule() submits work after a delay, for batching windows and retry backoff.
+ */
+public final class TaskScheduler {
+
+    public enum Priority {
+        USER_VISIBLE,
+        PREFETCH,
+        // Foreground work nobody is waiting for yet, e.g. thumbnails of rows not on screen
+        IDLE,
+        BACKGROUND_SYNC
+    }
+
+    static final int FOREGROUND_THREADS = 3;
+    static final int USER_VISIBLE_THREADS = 1;
+    static final int BACKGROUND_THREADS = 1;
+
+    private static TaskScheduler s_instance;
+
+    private final ThreadPoolExecutor m_foreground;
+    // USER_VISIBLE work only, null when there are no reserved workers
+    private final ThreadPoolExecutor m_userVisible;
+    private final ThreadPoolExecutor m_background;
+    // Only waits out delays, the work itself still goes through submit()
+    private final ScheduledThreadPoolExecutor m_timer;
+    private final AtomicLong m_sequence = new AtomicLong();
+    private final PriorityStats[] m_stats = new PriorityStats[Priority.values().length];
+
+    TaskScheduler(int foregroundThreads, int backgroundThreads) {
+        this(foregroundThreads, 0, backgroundThreads);
+    }
+
+    TaskScheduler(int foregroundThreads, int userVisibleThreads, int backgroundThreads) {
+        m_foreground = newPool("tap-fg", foregroundThreads, Thread.NORM_PRIORITY);
+        m_userVisible = userVisibleThreads > 0
+                ? newPool("tap-user", userVisibleThreads, Thread.NORM_PRIORITY) : null;
+        m_background = newPool("tap-sync", backgroundThreads, Thread.MIN_PRIORITY);
+        m_timer = new ScheduledThreadPoolExecutor(1, work -> {
+            Thread thread = new Thread(work, "tap-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        m_timer.setRemoveOnCancelPolicy(true);
+        for (int i = 0; i < m_stats.length; i++) {
+            m_stats[i] = new PriorityStats();
+        }
+    }
+
+    public static synchronized TaskScheduler get() {
+        if (s_instance == null) {
+            s_instance = new TaskScheduler(FOREGROUND_THREADS, USER_VISIBLE_THREADS, BACKGROUND_THREADS);
+        }
+        return s_instance;
+    }
+
+    /**
+     A handle to submitted work. Cancelling it before it starts removes it from the queue,
+     once it is running the work has to notice its own CancellationToken.
+     */
+    public final class Task implements Runnable, Comparable<Task> {
+        private final Priority m_priority;
+        private final long m_sequence;
+        private final long m_enqueuedAt;
+        private final Runnable m_work;
+        private final CancellationToken m_token;
+        private final Runnable m_onTokenCancel;
+        private final AtomicInteger m_state = new AtomicInteger(QUEUED);
+
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int CANCELLED = 2;
+
+        private Task(Priority priority, Runnable work, CancellationToken token) {
+            m_priority = priority;
+            m_sequence = TaskScheduler.this.m_sequence.getAndIncrement();
+            m_enqueuedAt = System.nanoTime();
+            m_work = work;
+            m_token = token;
+            m_onTokenCancel = this::cancel;
+        }
+
+        public Priority getPriority() {
+            return m_priority;
+        }
+
+        public boolean isCancelled() {
+            return m_state.get() == CANCELLED;
+        }
+
+        /**
+         Returns true if the work was still queued and now won't run.
+         */
+        public boolean cancel() {
+            if (!m_state.compareAndSet(QUEUED, CANCELLED)) return false;
+            dequeue();
+            statsFor(m_priority).cancelled.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public void run() {
+            if (m_token != null) {
+                m_token.removeOnCancel(m_onTokenCancel);
+            }
+            if (!m_state.compareAndSet(QUEUED, RUNNING)) return;
+            // The copy queued with the other pool won't run, don't leave it taking up the queue
+            dequeue();
+
+            statsFor(m_priority).recordWait(System.nanoTime() - m_enqueuedAt);
+            m_work.run();
+        }
+
+        private void dequeue() {
+            poolFor(m_priority).remove(this);
+            if (m_priority == Priority.USER_VISIBLE && m_userVisible != null) {
+                m_userVisible.remove(this);
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byPriority = m_priority.compareTo(other.m_priority);
+            return byPriority != 0 ? byPriority : Long.compare(m_sequence, other.m_sequence);
+        }
+    }
+
+    public Task submit(Priority priority, Runnable work) {
+        return submit(priority, null, work);
+    }
+
+    /**
+     Queues the work. If the token (may be null) is cancelled while the work is still
+     queued, it is dropped without running.
+     */
+    public Task submit(Priority priority, CancellationToken token, Runnable work) {
+        Task task = new Task(priority, work, token);
+        statsFor(priority).submitted.incrementAndGet();
+        if (token != null && !token.addOnCancel(task.m_onTokenCancel)) {
+            task.cancel();
+            return task;
+        }
+        poolFor(priority).execute(task);
+        if (priority == Priority.USER_VISIBLE && m_userVisible != null) {
+            m_userVisible.execute(task);
+        }
+        return task;
+    }
+
+    /**
+     Submits the work once delayMs has passed, unless the token (may be null) has been
+     cancelled by then. The returned Runnable cancels a submission that hasn't happened yet.
+     */
+    public Runnable schedule(Priority priority, long delayMs, CancellationToken token, Runnable work) {
+        ScheduledFuture<?> pending = m_timer.schedule(() -> {
+            if (token == null || !token.isCancelled()) {
+                submit(priority, token, work);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+        return () -> pending.cancel(false);
+    }
+
+    public Executor executor(Priority priority) {
+        return work -> submit(priority, work);
+    }
+
+    /**
+     An ExecutorService view for libraries that want one (Picasso). Shutting it down is a
+     no-op, the workers belong to the scheduler.
+     */
+    public ExecutorService executorService(Priority priority) {
+        return new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable work) {
+                TaskScheduler.this.submit(priority, work);
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return false;
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return false;
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) {
+                return false;
+            }
+        };
+    }
+
+    // Observability: queue depth and time spent waiting for a worker
+
+    public int getQueueDepth(Priority priority) {
+        int depth = 0;
+        // USER_VISIBLE work is in both queues, the foreground one has all of it
+        for (Runnable queued : poolFor(priority).getQueue()) {
+            Task task = (Task) queued;
+            if (task.m_priority == priority && task.m_state.get() == Task.QUEUED) {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    public int getActiveCount() {
+        int active = m_foreground.getActiveCount() + m_background.getActiveCount();
+        return m_userVisible != null ? active + m_userVisible.getActiveCount() : active;
+    }
+
+    public Stats getStats(Priority priority) {
+        PriorityStats stats = statsFor(priority);
+        return new Stats(priority, getQueueDepth(priority), stats.submitted.get(), stats.started.get(),
+                stats.cancelled.get(), stats.totalWaitNs.get(), stats.maxWaitNs.get());
+    }
+
+    public static final class Stats {
+        public final Priority priority;
+        public final int queueDepth;
+        public final long submitted;
+        public final long started;
+        public final long cancelled;
+        public final long totalWaitNs;
+        public final long maxWaitNs;
+
+        Stats(Priority priority, int queueDepth, long submitted, long started, long cancelled,
+              long totalWaitNs, long maxWaitNs) {
+            this.priority = priority;
+            this.queueDepth = queueDepth;
+            this.submitted = submitted;
+            this.started = started;
+            this.cancelled = cancelled;
+            this.totalWaitNs = totalWaitNs;
+            this.maxWaitNs = maxWaitNs;
+        }
+
+        public double averageWaitMs() {
+            return started == 0 ? 0 : totalWaitNs / 1e6 / started;
+        }
+
+        public double maxWaitMs() {
+            return maxWaitNs / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s queued=%d started=%d cancelled=%d wait avg=%.1fms max=%.1fms",
+                    priority, queueDepth, started, cancelled, averageWaitMs(), maxWaitMs());
+        }
+    }
+
+    private static final class PriorityStats {
+        final AtomicLong submitted = new AtomicLong();
+        final AtomicLong started = new AtomicLong();
+        final AtomicLong cancelled = new AtomicLong();
+        final AtomicLong totalWaitNs = new AtomicLong();
+        final AtomicLong maxWaitNs = new AtomicLong();
+
+        void recordWait(long waitNs) {
+            started.incrementAndGet();
+            totalWaitNs.addAndGet(waitNs);
+            long max;
+            while (waitNs > (max = maxWaitNs.get()) && !maxWaitNs.compareAndSet(max, waitNs)) {
+                // retry until the max sticks
+            }
+        }
+    }
+
+    private ThreadPoolExecutor poolFor(Priority priority) {
+        return priority == Priority.BACKGROUND_SYNC ? m_background : m_foreground;
+    }
+
+    private PriorityStats statsFor(Priority priority) {
+        return m_stats[priority.ordinal()];
+    }
+
+    private static ThreadPoolExecutor newPool(String name, int threads, int threadPriority) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = work -> {
+            Thread thread = new Thread(work, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(threadPriority);
+            return thread;
+        };
+        // Fixed size, the unbounded queue is what orders the work, not extra threads
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), factory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
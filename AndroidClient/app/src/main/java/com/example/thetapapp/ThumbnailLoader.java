@@ -0,0 +1,278 @@
+package com.example.thetapapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import com.squareup.picasso.Cache;
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.OkHttp3Downloader;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.StatsSnapshot;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ ThumbnailLoader:
+ The image pipeline for tap images, a Picasso instance with explicit cache budgets.
+ List thumbnails are decoded at the size they are shown at (not the full upload) and as
+ RGB_565, which is half the memory of ARGB_8888 and fine for product photos.
+ Rows cancel their previous request on rebind, and the list prefetches the next rows'
+ thumbnails while it is idle so they are already in memory when scrolled to.
+ Picasso's work runs on the shared TaskScheduler at PREFETCH priority. Picasso's own
+ request priority doesn't survive a custom executor (it only sees a FutureTask), so
+ prefetches and cache warming go through a second Picasso on the IDLE lane instead, which
+ shares the memory cache and the HTTP client (and its disk cache) with the first.
+ CatalogSyncWorker warms the disk cache in the background with warmThumbnail(), and
+ getDownloadedBytes() lets it keep to its byte budget.
+ The memory cache is the first thing MemoryBudget trims, the disk cache still has the images.
+ */
+public final class ThumbnailLoader {
+
+    // Tag for every list request, so loads can be paused during a fling
+    public static final Object LIST_TAG = new Object();
+
+    static final long DEFAULT_DISK_CACHE_BYTES = 50L * 1024 * 1024;
+    static final int MAX_MEMORY_CACHE_BYTES = 24 * 1024 * 1024;
+
+    private static ThumbnailLoader s_instance;
+
+    private final Picasso m_picasso;
+    // Loads nobody is looking at yet, queued behind m_picasso's
+    private final Picasso m_idlePicasso;
+    private final MemoryCache m_memoryCache;
+    private final long m_diskCacheBytes;
+    private final AtomicLong m_downloadedBytes = new AtomicLong();
+
+    private ThumbnailLoader(Context context, int memoryCacheBytes, long diskCacheBytes) {
+        m_memoryCache = new MemoryCache(memoryCacheBytes);
+        m_diskCacheBytes = diskCacheBytes;
+        OkHttpClient httpClient = newHttpClient(context, diskCacheBytes);
+        // Image downloads and decodes queue behind anything the user is waiting on, and
+        // blocked downloads leave TaskScheduler's USER_VISIBLE workers free
+        m_picasso = newPicasso(context, httpClient, TaskScheduler.Priority.PREFETCH);
+        m_idlePicasso = newPicasso(context, httpClient, TaskScheduler.Priority.IDLE);
+    }
+
+    private Picasso newPicasso(Context context, OkHttpClient httpClient, TaskScheduler.Priority priority) {
+        return new Picasso.Builder(context)
+                .memoryCache(m_memoryCache)
+                .downloader(new OkHttp3Downloader(httpClient))
+                .defaultBitmapConfig(Bitmap.Config.RGB_565)
+                .executor(TaskScheduler.get().executorService(priority))
+                .build();
+    }
+
+    public static synchronized ThumbnailLoader get(Context context) {
+        if (s_instance == null) {
+            s_instance = create(context, defaultMemoryCacheBytes(), DEFAULT_DISK_CACHE_BYTES);
+        }
+        return s_instance;
+    }
+
+    /**
+     Sets the cache budgets. Only has an effect before the loader is first used.
+     */
+    public static synchronized void configure(Context context, int memoryCacheBytes, long diskCacheBytes) {
+        if (s_instance == null) {
+            s_instance = create(context, memoryCacheBytes, diskCacheBytes);
+        }
+    }
+
+    private static ThumbnailLoader create(Context context, int memoryCacheBytes, long diskCacheBytes) {
+        ThumbnailLoader loader = new ThumbnailLoader(context.getApplicationContext(), memoryCacheBytes, diskCacheBytes);
+        MemoryBudget.get().register("thumbnails", MemoryBudget.Cost.REDECODE, loader.m_memoryCache);
+        return loader;
+    }
+
+    // OkHttp3Downloader's own setup plus a count of what actually comes over the network
+    private OkHttpClient newHttpClient(Context context, long diskCacheBytes) {
+        return new OkHttpClient.Builder()
+                .cache(new okhttp3.Cache(new File(context.getCacheDir(), "thumbnails"), diskCacheBytes))
+                // A network interceptor, so disk cache hits don't count
+                .addNetworkInterceptor(chain -> {
+                    Response response = chain.proceed(chain.request());
+                    ResponseBody body = response.body();
+                    if (body != null && body.contentLength() > 0) {
+                        m_downloadedBytes.addAndGet(body.contentLength());
+                    }
+                    return response;
+                })
+                .build();
+    }
+
+    // An eighth of the heap, capped, leaves room for everything else on low-end devices
+    static int defaultMemoryCacheBytes() {
+        return (int) Math.min(Runtime.getRuntime().maxMemory() / 8, MAX_MEMORY_CACHE_BYTES);
+    }
+
+    public Picasso picasso() {
+        return m_picasso;
+    }
+
+    /**
+     Loads a square thumbnail of sizePx into the view, cancelling whatever the view
+     was loading before (it may have been recycled for another row).
+     */
+    public void loadThumbnail(ImageView view, String url, int sizePx) {
+        loadThumbnail(view, url, sizePx, null);
+    }
+
+    // callback (may be null) is told on the main thread once the image is in the view or failed
+    public void loadThumbnail(ImageView view, String url, int sizePx, Callback callback) {
+        m_picasso.cancelRequest(view);
+        if (url == null || url.isEmpty()) {
+            view.setImageDrawable(null);
+            return;
+        }
+
+        m_picasso.load(url)
+                .resize(sizePx, sizePx)
+                .centerCrop()
+                .tag(LIST_TAG)
+                .into(view, callback);
+    }
+
+    public void cancel(ImageView view) {
+        m_picasso.cancelRequest(view);
+    }
+
+    /**
+     Warms the memory cache with a thumbnail. Uses the same resize as loadThumbnail,
+     otherwise it would be cached under a different key and never hit.
+     */
+    public void prefetchThumbnail(String url, int sizePx) {
+        if (url == null || url.isEmpty()) return;
+
+        m_idlePicasso.load(url)
+                .resize(sizePx, sizePx)
+                .centerCrop()
+                .tag(LIST_TAG)
+                .fetch();
+    }
+
+    /**
+     Downloads and caches a list thumbnail for later, on the IDLE lane and outside the
+     list's tag, so pausing the list doesn't hold it up. callback is told on the main thread.
+     */
+    public void warmThumbnail(String url, int sizePx, Callback callback) {
+        m_idlePicasso.load(url)
+                .resize(sizePx, sizePx)
+                .centerCrop()
+                .fetch(callback);
+    }
+
+    public void pauseList() {
+        m_picasso.pauseTag(LIST_TAG);
+        m_idlePicasso.pauseTag(LIST_TAG);
+    }
+
+    public void resumeList() {
+        m_picasso.resumeTag(LIST_TAG);
+        m_idlePicasso.resumeTag(LIST_TAG);
+    }
+
+    // Observability: current/maximum memory use and Picasso's hit, miss and decode counters
+
+    public int getMemoryCacheSize() {
+        return m_memoryCache.size();
+    }
+
+    public int getMemoryCacheMaxSize() {
+        return m_memoryCache.maxSize();
+    }
+
+    public long getDiskCacheMaxSize() {
+        return m_diskCacheBytes;
+    }
+
+    // Image bytes downloaded since the app started, disk cache hits excluded
+    public long getDownloadedBytes() {
+        return m_downloadedBytes.get();
+    }
+
+    // On-screen loads only, prefetches and warming have counters of their own in m_idlePicasso
+    public StatsSnapshot getStats() {
+        return m_picasso.getSnapshot();
+    }
+
+    /**
+     Picasso's memory cache, with trimToSize() so MemoryBudget can shrink it without
+     throwing every thumbnail away. Keys and the oversized-bitmap rule follow Picasso's LruCache.
+     */
+    private static final class MemoryCache implements Cache, MemoryBudget.Trimmable {
+
+        // Picasso ends the URI part of a cache key with a newline, before the transformations
+        private static final char KEY_SEPARATOR = '\n';
+
+        private final LruCache<String, Bitmap> m_cache;
+
+        MemoryCache(int maxBytes) {
+            m_cache = new LruCache<String, Bitmap>(maxBytes) {
+                @Override
+                protected int sizeOf(String key, Bitmap bitmap) {
+                    return bitmap.getAllocationByteCount();
+                }
+            };
+        }
+
+        @Override
+        public Bitmap get(String key) {
+            return m_cache.get(key);
+        }
+
+        @Override
+        public void set(String key, Bitmap bitmap) {
+            if (key == null || bitmap == null) {
+                throw new NullPointerException("key == null || bitmap == null");
+            }
+            // Would only push everything else out and then itself
+            if (bitmap.getAllocationByteCount() > m_cache.maxSize()) {
+                m_cache.remove(key);
+                return;
+            }
+            m_cache.put(key, bitmap);
+        }
+
+        @Override
+        public int size() {
+            return m_cache.size();
+        }
+
+        @Override
+        public int maxSize() {
+            return m_cache.maxSize();
+        }
+
+        @Override
+        public void clear() {
+            m_cache.evictAll();
+        }
+
+        @Override
+        public void clearKeyUri(String uri) {
+            for (String key : m_cache.snapshot().keySet()) {
+                if (key.startsWith(uri) && key.length() > uri.length()
+                        && key.charAt(uri.length()) == KEY_SEPARATOR) {
+                    m_cache.remove(key);
+                }
+            }
+        }
+
+        @Override
+        public long sizeBytes() {
+            return m_cache.size();
+        }
+
+        @Override
+        public void trimToSize(long maxBytes) {
+            m_cache.trimToSize((int) Math.min(maxBytes, Integer.MAX_VALUE));
+        }
+    }
+}
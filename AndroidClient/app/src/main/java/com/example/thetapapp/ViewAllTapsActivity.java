@@ -1,16 +1,11 @@
 package com.example.thetapapp;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ProgressBar;
 import android.widget.Toast;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 
 /**
  ViewAllTapsActivity:
@@ -21,61 +16,44 @@ public class ViewAllTapsActivity extends AppCompatActivity {
 
     private ProgressBar progressBar;
     private TapList m_tapList;
-
-    private static final String API_URL = "http://taptasticitdma.freedynamicdns.org:3000/api/public/taps";
+    // Until the first rows are on screen, for list.first_row
+    private boolean m_firstRowPending;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // Opening the screen to its first rows; a recreated Activity (rotation) already had them
+        long openedAt = System.nanoTime();
+        m_firstRowPending = savedInstanceState == null;
+
         setContentView(R.layout.activity_view_all_taps);
 
         progressBar = findViewById(R.id.progressBar);
         m_tapList = findViewById(R.id.tapsContainer);
-        // Fetch and display data
-        fetchTaps();
-    }
-
-    /**
-     Fetches all taps from the backend API.
-     Runs on a background thread to avoid blocking the main UI thread.
-     */
-    private void fetchTaps() {
-        progressBar.setVisibility(View.VISIBLE);
-
-        new Thread(() -> {
-            try {
-
-                URL url = new URL(API_URL);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("GET");
-
 
-                BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = in.readLine()) != null) {
-                    response.append(line);
-                }
-                in.close();
-
-
-                JSONObject jsonResponse = new JSONObject(response.toString());
-                JSONArray data = jsonResponse.getJSONArray("data");
-
-                // Update UI with results
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(View.GONE);
-                    m_tapList.setData(jsonResponse);
+        // The ViewModel survives rotation, so a recreated Activity picks up the same load
+        TapListViewModel viewModel = new ViewModelProvider(this).get(TapListViewModel.class);
+        viewModel.getTaps().observe(this, taps -> {
+            m_tapList.setData(taps);
+            if (m_firstRowPending && taps != null && !taps.isEmpty()) {
+                m_firstRowPending = false;
+                // After the layout pass that binds them
+                m_tapList.post(() -> {
+                    Metrics.get().recordSince("list.first_row", openedAt);
+                    AppWarmup.onFirstRow();
                 });
-
-            } catch (Exception e) {
-                // Handle network or parsing errors
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(View.GONE);
-                    Toast.makeText(this, "Failed to load taps", Toast.LENGTH_SHORT).show();
-                });
-                e.printStackTrace();
             }
-        }).start();
+        });
+        viewModel.isLoading().observe(this, loading ->
+                progressBar.setVisibility(loading ? View.VISIBLE : View.GONE));
+        viewModel.getError().observe(this, message -> {
+            if (message == null) return;
+            Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+            viewModel.errorShown();
+        });
+        m_tapList.setOnLoadMoreListener(viewModel::loadMore);
+
+        // Fetch and display data
+        viewModel.start();
     }
 }
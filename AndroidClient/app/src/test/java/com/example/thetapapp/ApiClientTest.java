@@ -0,0 +1,202 @@
+package com.example.thetapapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs ApiClient against a local HttpServer instead of the real node server.
+ */
+public class ApiClientTest {
+
+    private static final String CATALOG = "{\"success\":true,\"count\":1,\"data\":[{\"id\":\"1\",\"title\":\"Brass tap\"}]}";
+
+    private HttpServer m_server;
+    private ApiClient m_client;
+    private final Set<Integer> m_clientPorts = new HashSet<>();
+    private volatile String m_lastAcceptEncoding;
+    private volatile String m_lastBody;
+    private final AtomicInteger m_limitedRequests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        m_server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        m_server.createContext("/api/public/taps", this::handleTaps);
+        m_server.createContext("/api/public/taps/query", this::handleQuery);
+        m_server.createContext("/api/public/slow", this::handleSlow);
+        m_server.createContext("/api/public/limited", this::handleLimited);
+        m_server.setExecutor(Executors.newCachedThreadPool());
+        m_server.start();
+
+        m_client = new ApiClient("http://127.0.0.1:" + m_server.getAddress().getPort() + "/api/public");
+    }
+
+    @After
+    public void tearDown() {
+        m_server.stop(0);
+    }
+
+    @Test
+    public void get_negotiatesGzipAndDecodesBody() throws IOException {
+        try (ApiResponse response = m_client.get("taps")) {
+            assertEquals(200, response.getCode());
+            assertEquals("gzip", response.getHeader("Content-Encoding"));
+            assertEquals(CATALOG, response.bodyString());
+        }
+        assertEquals("gzip", m_lastAcceptEncoding);
+    }
+
+    @Test
+    public void get_reusesConnectionOnceResponseIsClosed() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            try (ApiResponse response = m_client.get("taps")) {
+                assertTrue(response.isSuccessful());
+                // Deliberately leave the body unread, close() has to drain it
+            }
+        }
+        assertEquals(1, m_clientPorts.size());
+    }
+
+    @Test
+    public void close_countsWireBytesEvenWhenBodyIsUnread() throws IOException {
+        try (ApiResponse response = m_client.get("taps")) {
+            response.bodyString();
+        }
+        long afterRead = m_client.getBytesReceived();
+        assertTrue(afterRead > 0);
+
+        try (ApiResponse ignored = m_client.get("taps")) {
+            // drained on close
+        }
+        assertEquals(2 * afterRead, m_client.getBytesReceived());
+    }
+
+    @Test
+    public void postJson_sendsBodyAndExposesErrorStream() throws IOException {
+        String filters = "{\"material\":\"Metal\"}";
+        try (ApiResponse response = m_client.postJson("taps/query", filters, null)) {
+            assertEquals(404, response.getCode());
+            assertFalse(response.isSuccessful());
+            assertTrue(response.bodyString().contains("No matching taps"));
+        }
+        assertEquals(filters, m_lastBody);
+    }
+
+    @Test
+    public void cancel_disconnectsRequestThatIsStillDownloading() throws Exception {
+        CancellationToken token = new CancellationToken();
+        new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {
+            }
+            token.cancel();
+        }).start();
+
+        long start = System.nanoTime();
+        try (ApiResponse response = m_client.get("slow", token)) {
+            response.bodyString();
+            fail("Expected the cancelled download to fail");
+        } catch (IOException expected) {
+            // the disconnect surfaces as an IOException on the reading thread
+        }
+        assertTrue(token.isCancelled());
+        assertTrue(System.nanoTime() - start < 3_000_000_000L);
+    }
+
+    @Test
+    public void rateLimited_nextRequestFailsWithoutReachingServer() throws IOException {
+        try (ApiResponse response = m_client.get("limited")) {
+            assertEquals(429, response.getCode());
+        }
+        assertTrue(m_client.getGovernor().isBlocked());
+
+        try (ApiResponse ignored = m_client.get("limited")) {
+            fail("Expected the governor to refuse the request");
+        } catch (RequestGovernor.RateLimitedException expected) {
+            assertTrue(expected.getWaitMs() > 0);
+        }
+        assertEquals(1, m_limitedRequests.get());
+    }
+
+    // Like RatelimiterMiddle once the IP is blocked
+    private void handleLimited(HttpExchange exchange) throws IOException {
+        m_limitedRequests.incrementAndGet();
+        byte[] body = "Too many requests, try again later".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Retry-After", "600");
+        exchange.getResponseHeaders().set("X-RateLimit-Remaining", "0");
+        exchange.sendResponseHeaders(429, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private void handleSlow(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream os = exchange.getResponseBody()) {
+            for (int i = 0; i < 100; i++) {
+                os.write(' ');
+                os.flush();
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException | IOException ignored) {
+            // client went away
+        }
+    }
+
+    private void handleTaps(HttpExchange exchange) throws IOException {
+        m_clientPorts.add(exchange.getRemoteAddress().getPort());
+        m_lastAcceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(CATALOG.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] body = compressed.toByteArray();
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private void handleQuery(HttpExchange exchange) throws IOException {
+        m_lastBody = new String(readAll(exchange), StandardCharsets.UTF_8);
+
+        byte[] body = "{\"success\":false,\"message\":\"No matching taps found for your specifications.\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(404, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static byte[] readAll(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = exchange.getRequestBody().read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
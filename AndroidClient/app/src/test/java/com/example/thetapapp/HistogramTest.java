@@ -0,0 +1,75 @@
+package com.example.thetapapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void percentiles_withinBucketPrecision() {
+        Histogram histogram = new Histogram(Metrics.UNIT_MS);
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        assertNear(500, histogram.getPercentile(50));
+        assertNear(900, histogram.getPercentile(90));
+        assertNear(990, histogram.getPercentile(99));
+        assertEquals(1000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void bucketOf_upperBoundContainsValue() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1023, 1024, 123_456_789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(value + " above its bucket", value <= Histogram.upperBound(bucket));
+            if (bucket > 0) {
+                assertTrue(value + " below its bucket", value > Histogram.upperBound(bucket - 1));
+            }
+        }
+    }
+
+    @Test
+    public void reset_clearsEverything() {
+        Histogram histogram = new Histogram(Metrics.UNIT_BYTES);
+        histogram.record(42);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void endpointOf_groupsTapIdsAndPages() {
+        assertEquals("taps", Metrics.endpointOf("taps"));
+        assertEquals("taps?page", Metrics.endpointOf("taps?limit=50&cursor=100"));
+        assertEquals("taps", Metrics.endpointOf("taps?view=summary"));
+        assertEquals("taps?page", Metrics.endpointOf("taps?view=summary&limit=50"));
+        assertEquals("taps/query", Metrics.endpointOf("taps/query"));
+        assertEquals("taps/changes", Metrics.endpointOf("taps/changes?since=12"));
+        assertEquals("taps/batch", Metrics.endpointOf("taps/batch?ids=1,2"));
+        assertEquals("taps/:id", Metrics.endpointOf("taps/1700000000000"));
+    }
+
+    @Test
+    public void dump_reportsPercentilesInMilliseconds() {
+        Metrics metrics = new Metrics();
+        metrics.recordNanos("net.taps.ttfb", 250_000_000L);
+
+        String dump = metrics.dump();
+        assertTrue(dump, dump.startsWith("net.taps.ttfb"));
+        assertTrue(dump, dump.contains("n=1"));
+        assertTrue(dump, dump.contains("max=250.0 ms"));
+    }
+
+    private static void assertNear(long expected, long actual) {
+        double error = Math.abs(actual - expected) / (double) expected;
+        assertTrue("expected ~" + expected + " but was " + actual, error <= 1.0 / Histogram.SUB_BUCKETS);
+    }
+}
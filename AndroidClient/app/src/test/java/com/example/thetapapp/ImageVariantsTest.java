@@ -0,0 +1,38 @@
+package com.example.thetapapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ImageVariantsTest {
+
+    private static final String VARIANTS =
+            "http://img/v/1_128.webp 128w, http://img/v/1_256.webp 256w, http://img/v/1_512.webp 512w";
+
+    private static Tap tap(String variants) {
+        return new Tap("1", "Brass tap", null, "http://img/1.png", variants, "Drum", "Metal", "Small", "High", "Oil");
+    }
+
+    @Test
+    public void urlFor_picksTheSmallestVariantCoveringTheDensityScaledSize() {
+        // A 100dp row: mdpi, xhdpi and xxhdpi
+        assertEquals("http://img/v/1_128.webp", ImageVariants.urlFor(tap(VARIANTS), 100));
+        assertEquals("http://img/v/1_256.webp", ImageVariants.urlFor(tap(VARIANTS), 200));
+        assertEquals("http://img/v/1_512.webp", ImageVariants.urlFor(tap(VARIANTS), 300));
+        assertEquals("http://img/v/1_256.webp", ImageVariants.urlFor(tap(VARIANTS), 256));
+    }
+
+    @Test
+    public void urlFor_largerThanEveryVariantOrNoVariants_usesTheOriginal() {
+        assertEquals("http://img/1.png", ImageVariants.urlFor(tap(VARIANTS), 1080));
+        assertEquals("http://img/1.png", ImageVariants.urlFor(tap(null), 100));
+        assertEquals("http://img/1.png", ImageVariants.urlFor(tap(""), 100));
+    }
+
+    @Test
+    public void pick_ignoresOrderAndUnreadableEntries() {
+        String variants = "http://img/v/1_512.webp 512w,garbage, http://img/v/1_x.webp xw,http://img/v/1_128.webp 128w";
+        assertEquals("http://img/v/1_128.webp", ImageVariants.pick(variants, 64));
+        assertEquals("http://img/v/1_512.webp", ImageVariants.pick(variants, 129));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.thetapapp;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MemoryBudgetTest {
+
+    // Holds a byte count and records the trims it was asked for
+    private static class FakeCache implements MemoryBudget.Trimmable {
+        long bytes;
+        final List<Long> trims = new ArrayList<>();
+
+        FakeCache(long bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public long sizeBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void trimToSize(long maxBytes) {
+            trims.add(maxBytes);
+            bytes = Math.min(bytes, maxBytes);
+        }
+    }
+
+    @Test
+    public void trimTo_evictsCheapestCachesFirst() {
+        MemoryBudget budget = new MemoryBudget(1000);
+        FakeCache details = new FakeCache(300);
+        FakeCache thumbnails = new FakeCache(400);
+        FakeCache index = new FakeCache(200);
+        // Registration order doesn't matter, cost does
+        budget.register("details", MemoryBudget.Cost.REFETCH, details);
+        budget.register("index", MemoryBudget.Cost.REBUILD, index);
+        budget.register("thumbnails", MemoryBudget.Cost.REDECODE, thumbnails);
+
+        assertEquals(500, budget.trimTo(400));
+
+        assertEquals(0, thumbnails.bytes);
+        assertEquals(100, index.bytes);
+        assertEquals(300, details.bytes);
+        assertTrue(details.trims.isEmpty());
+    }
+
+    @Test
+    public void checkBudget_onlyTrimsOnceOverBudget() {
+        MemoryBudget budget = new MemoryBudget(1000);
+        FakeCache thumbnails = new FakeCache(900);
+        budget.register("thumbnails", MemoryBudget.Cost.REDECODE, thumbnails);
+
+        budget.checkBudget();
+        assertTrue(thumbnails.trims.isEmpty());
+
+        thumbnails.bytes = 1200;
+        budget.checkBudget();
+        assertEquals(Arrays.asList(1000L), thumbnails.trims);
+    }
+
+    @Test
+    public void usage_reportsEveryCacheInEvictionOrder() {
+        MemoryBudget budget = new MemoryBudget(1000);
+        budget.register("details", MemoryBudget.Cost.REFETCH, new FakeCache(30));
+        budget.register("thumbnails", MemoryBudget.Cost.REDECODE, new FakeCache(10));
+        budget.register("catalog", MemoryBudget.Cost.RELOAD, new FakeCache(20));
+
+        Map<String, Long> usage = budget.usage();
+        assertEquals(Arrays.asList("thumbnails", "catalog", "details"), new ArrayList<>(usage.keySet()));
+        assertEquals(Long.valueOf(20), usage.get("catalog"));
+        assertEquals(60, budget.totalBytes());
+    }
+
+    @Test
+    public void trimLevels_keepLessAsPressureGrows() {
+        long budget = 800;
+        assertEquals(600, MemoryBudget.targetFor(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE, budget));
+        assertEquals(200, MemoryBudget.targetFor(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL, budget));
+        assertEquals(400, MemoryBudget.targetFor(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN, budget));
+        assertEquals(100, MemoryBudget.targetFor(ComponentCallbacks2.TRIM_MEMORY_MODERATE, budget));
+        assertEquals(0, MemoryBudget.targetFor(ComponentCallbacks2.TRIM_MEMORY_COMPLETE, budget));
+    }
+
+    @Test
+    public void onLowMemory_dropsEverything() {
+        MemoryBudget budget = new MemoryBudget(1000);
+        FakeCache thumbnails = new FakeCache(100);
+        FakeCache details = new FakeCache(100);
+        budget.register("thumbnails", MemoryBudget.Cost.REDECODE, thumbnails);
+        budget.register("details", MemoryBudget.Cost.REFETCH, details);
+
+        budget.onLowMemory();
+        assertEquals(0, budget.totalBytes());
+    }
+}
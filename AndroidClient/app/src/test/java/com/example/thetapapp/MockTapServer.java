@@ -0,0 +1,384 @@
+package com.example.thetapapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ MockTapServer:
+ A local stand-in for the node server's /api/public routes, for tests that need the whole
+ client stack (ApiClient, repository, screens) against a network that behaves badly.
+ - Serves a synthetic catalog of any size: GET /taps (full or ?limit=&cursor= paged, with
+   ETag / 304), POST /taps/query, GET /taps/batch?ids= and GET /taps/:id, gzipped like
+   the real server.
+ - A NetworkProfile adds latency before the response and caps the body's bandwidth.
+ - Faults can be queued: plain error codes, or the rate limiter's 429 block response.
+ Point the app at it with ApiClient.setInstance(new ApiClient(server.getBaseUrl())).
+ */
+public class MockTapServer {
+
+    /**
+     Latency added before the response headers and the bandwidth the body is sent at
+     (0 means unlimited). Rough figures for the networks our users complain about.
+     */
+    public static final class NetworkProfile {
+        public static final NetworkProfile LOCAL = new NetworkProfile("local", 0, 0);
+        public static final NetworkProfile WIFI = new NetworkProfile("wifi", 30, 2_500_000);
+        public static final NetworkProfile THREE_G = new NetworkProfile("3g", 300, 90_000);
+        public static final NetworkProfile EDGE = new NetworkProfile("edge", 800, 25_000);
+
+        public final String name;
+        public final long latencyMs;
+        public final long bytesPerSecond;
+
+        public NetworkProfile(String name, long latencyMs, long bytesPerSecond) {
+            this.name = name;
+            this.latencyMs = latencyMs;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    // Same status and body as RatelimiterMiddle.js sends while an IP is blocked
+    static final int RATE_LIMITED = 429;
+    static final String RATE_LIMITED_BODY = "Too many requests, try again later";
+    static final String RATE_LIMITED_RETRY_AFTER = "600";
+
+    private static final String BASE_PATH = "/api/public/";
+    private static final String ETAG = "W/\"taps-1\"";
+    private static final int GZIP_MIN_BYTES = 1024;
+    private static final int CHUNK_BYTES = 1024;
+
+    private static final String[] CONTAINER_TYPES = {"Bottle", "Drum", "Tank"};
+    private static final String[] MATERIALS = {"Plastic", "Metal", "Ceramic"};
+    private static final String[] SIZES = {"Small", "Medium", "Large"};
+    private static final String[] FLOWS = {"Low", "Medium", "High"};
+    private static final String[] LIQUID_TYPES = {"Water", "Oil", "Wine"};
+
+    private final HttpServer m_server;
+    private final Deque<Integer> m_faults = new ArrayDeque<>();
+    private final AtomicInteger m_requestCount = new AtomicInteger();
+    private final AtomicInteger m_firstPageRequestCount = new AtomicInteger();
+    private volatile List<Tap> m_catalog = new ArrayList<>();
+    private volatile NetworkProfile m_profile = NetworkProfile.LOCAL;
+
+    public MockTapServer() throws IOException {
+        m_server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        m_server.createContext(BASE_PATH + "taps", this::handle);
+        m_server.setExecutor(Executors.newCachedThreadPool());
+        m_server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + m_server.getAddress().getPort() + BASE_PATH;
+    }
+
+    public void stop() {
+        m_server.stop(0);
+    }
+
+    public MockTapServer setCatalog(List<Tap> catalog) {
+        m_catalog = catalog;
+        return this;
+    }
+
+    public MockTapServer setCatalogSize(int size) {
+        return setCatalog(syntheticCatalog(size));
+    }
+
+    public MockTapServer setNetworkProfile(NetworkProfile profile) {
+        m_profile = profile;
+        return this;
+    }
+
+    // The next count requests get this status instead of their normal response
+    public synchronized MockTapServer failNext(int count, int statusCode) {
+        for (int i = 0; i < count; i++) {
+            m_faults.add(statusCode);
+        }
+        return this;
+    }
+
+    public MockTapServer rateLimitNext(int count) {
+        return failNext(count, RATE_LIMITED);
+    }
+
+    public int getRequestCount() {
+        return m_requestCount.get();
+    }
+
+    // Paged GET /taps requests without a cursor
+    public int getFirstPageRequestCount() {
+        return m_firstPageRequestCount.get();
+    }
+
+    /**
+     Every combination of the spinner values shows up within the first 243 taps, so any
+     filter the query screen can build matches something once the catalog is that big.
+     */
+    public static List<Tap> syntheticCatalog(int size) {
+        List<Tap> taps = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String id = Long.toString(1_700_000_000_000L + i);
+            taps.add(new Tap(id, "Tap " + i, "Synthetic tap number " + i,
+                    "http://127.0.0.1/uploads/" + id + ".jpg",
+                    CONTAINER_TYPES[i % 3],
+                    MATERIALS[(i / 3) % 3],
+                    SIZES[(i / 9) % 3],
+                    FLOWS[(i / 27) % 3],
+                    LIQUID_TYPES[(i / 81) % 3]));
+        }
+        return taps;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        m_requestCount.incrementAndGet();
+        try {
+            sleep(m_profile.latencyMs);
+
+            Integer fault;
+            synchronized (this) {
+                fault = m_faults.poll();
+            }
+            if (fault != null) {
+                if (fault == RATE_LIMITED) {
+                    exchange.getResponseHeaders().set("Retry-After", RATE_LIMITED_RETRY_AFTER);
+                    send(exchange, RATE_LIMITED, "text/html; charset=utf-8", RATE_LIMITED_BODY);
+                } else {
+                    send(exchange, fault, "application/json; charset=utf-8",
+                            "{\"success\":false,\"error\":\"Injected fault\"}");
+                }
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath().substring(BASE_PATH.length());
+            if (path.equals("taps") && "GET".equals(exchange.getRequestMethod())) {
+                handleList(exchange);
+            } else if (path.equals("taps/query") && "POST".equals(exchange.getRequestMethod())) {
+                handleQuery(exchange);
+            } else if (path.equals("taps/batch") && "GET".equals(exchange.getRequestMethod())) {
+                handleBatch(exchange);
+            } else if (path.startsWith("taps/")) {
+                handleDetail(exchange, path.substring("taps/".length()));
+            } else {
+                send(exchange, 404, "application/json; charset=utf-8", "{\"success\":false}");
+            }
+        } catch (JSONException e) {
+            send(exchange, 400, "application/json; charset=utf-8", "{\"success\":false}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleList(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("ETag", ETAG);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        List<Tap> catalog = m_catalog;
+        JSONObject body = new JSONObject();
+        body.put("success", true);
+
+        if (query.containsKey("limit") || query.containsKey("cursor")) {
+            int limit = Integer.parseInt(query.getOrDefault("limit", "50"));
+            // Like the server, the cursor is the id of the previous page's last tap
+            String cursor = query.get("cursor");
+            if (cursor == null) {
+                m_firstPageRequestCount.incrementAndGet();
+            }
+            int start = 0;
+            if (cursor != null) {
+                while (start < catalog.size() && !catalog.get(start).getId().equals(cursor)) {
+                    start++;
+                }
+                start = Math.min(catalog.size(), start + 1);
+            }
+            int end = Math.min(catalog.size(), start + limit);
+            List<Tap> page = catalog.subList(start, end);
+            body.put("count", page.size());
+            body.put("nextCursor", end < catalog.size() ? catalog.get(end - 1).getId() : JSONObject.NULL);
+            body.put("data", toJson(page));
+        } else {
+            body.put("count", catalog.size());
+            body.put("data", toJson(catalog));
+        }
+        send(exchange, 200, "application/json; charset=utf-8", body.toString());
+    }
+
+    private void handleQuery(HttpExchange exchange) throws IOException {
+        JSONObject filters = new JSONObject(readBody(exchange.getRequestBody()));
+        List<Tap> results = new ArrayList<>();
+        for (Tap tap : m_catalog) {
+            boolean matches = true;
+            for (int a = 0; a < TapQueryIndex.ATTRIBUTES.length && matches; a++) {
+                String wanted = filters.optString(TapQueryIndex.ATTRIBUTES[a], null);
+                matches = wanted == null || wanted.equals(TapQueryIndex.attributeValue(tap, a));
+            }
+            if (matches) {
+                results.add(tap);
+            }
+        }
+
+        if (results.isEmpty()) {
+            send(exchange, 404, "application/json; charset=utf-8",
+                    "{\"success\":false,\"message\":\"No matching taps found for your specifications.\"}");
+            return;
+        }
+        JSONObject body = new JSONObject();
+        body.put("success", true);
+        body.put("count", results.size());
+        body.put("data", toJson(results));
+        send(exchange, 200, "application/json; charset=utf-8", body.toString());
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        String ids = parseQuery(exchange.getRequestURI().getRawQuery()).get("ids");
+        List<String> wanted = ids == null ? new ArrayList<>() : Arrays.asList(ids.split(","));
+        List<Tap> found = new ArrayList<>();
+        JSONArray missing = new JSONArray();
+        for (String id : wanted) {
+            Tap match = null;
+            for (Tap tap : m_catalog) {
+                if (tap.getId().equals(id)) {
+                    match = tap;
+                    break;
+                }
+            }
+            if (match != null) {
+                found.add(match);
+            } else {
+                missing.put(id);
+            }
+        }
+
+        JSONObject body = new JSONObject();
+        body.put("success", true);
+        body.put("count", found.size());
+        body.put("data", toJson(found));
+        body.put("missing", missing);
+        send(exchange, 200, "application/json; charset=utf-8", body.toString());
+    }
+
+    private void handleDetail(HttpExchange exchange, String id) throws IOException {
+        for (Tap tap : m_catalog) {
+            if (tap.getId().equals(id)) {
+                JSONObject body = new JSONObject();
+                body.put("success", true);
+                body.put("data", toJson(tap));
+                send(exchange, 200, "application/json; charset=utf-8", body.toString());
+                return;
+            }
+        }
+        send(exchange, 404, "application/json; charset=utf-8", "{\"success\":false,\"error\":\"Tap not found\"}");
+    }
+
+    private void send(HttpExchange exchange, int code, String contentType, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (body.length >= GZIP_MIN_BYTES && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(code, body.length);
+        OutputStream os = exchange.getResponseBody();
+        long bytesPerSecond = m_profile.bytesPerSecond;
+        for (int offset = 0; offset < body.length; offset += CHUNK_BYTES) {
+            int length = Math.min(CHUNK_BYTES, body.length - offset);
+            os.write(body, offset, length);
+            os.flush();
+            if (bytesPerSecond > 0) {
+                sleep(length * 1000L / bytesPerSecond);
+            }
+        }
+        os.close();
+    }
+
+    private static JSONArray toJson(List<Tap> taps) {
+        JSONArray array = new JSONArray();
+        for (Tap tap : taps) {
+            array.put(toJson(tap));
+        }
+        return array;
+    }
+
+    // Field names as the server stores them, liquid_type rather than category
+    private static JSONObject toJson(Tap tap) {
+        JSONObject json = new JSONObject();
+        json.put("id", tap.getId());
+        json.put("title", tap.getTitle());
+        json.put("description", tap.getDescription());
+        json.put("image_url", tap.getImage_url());
+        json.put("image_variants", tap.getImage_variants());
+        json.put("container_type", tap.getContainer_type());
+        json.put("material", tap.getMaterial());
+        json.put("size", tap.getSize());
+        json.put("flow_rate", tap.getFlow_rate());
+        json.put("liquid_type", tap.getCategory());
+        return json;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) return query;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return query;
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) return;
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.thetapapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RequestGovernorTest {
+
+    // Jitter in the middle of its range, so waits are predictable
+    private static RequestGovernor governor() {
+        return new RequestGovernor(new Random() {
+            @Override
+            public double nextDouble() {
+                return 0.5;
+            }
+        });
+    }
+
+    @Test
+    public void withoutHeaders_countsLikeTheMiddleware() throws Exception {
+        RequestGovernor governor = governor();
+        for (int i = 0; i < RequestGovernor.LIMIT - RequestGovernor.RESERVE - 1; i++) {
+            governor.acquire();
+        }
+        assertFalse(governor.isBudgetLow());
+
+        governor.acquire();
+        assertEquals(RequestGovernor.RESERVE, governor.getRemaining());
+        assertTrue(governor.isBudgetLow());
+        // Low only holds back background work, requests still go out
+        assertFalse(governor.isBlocked());
+    }
+
+    @Test
+    public void headers_overrideTheLocalCount() throws Exception {
+        RequestGovernor governor = governor();
+        governor.acquire();
+        governor.onResponse(200, "10", "2", "300", null);
+        assertEquals(2, governor.getRemaining());
+
+        // Reset 0: the window is already over
+        governor.onResponse(200, "10", "0", "0", null);
+        assertEquals(10, governor.getRemaining());
+    }
+
+    @Test
+    public void tooManyRequests_blocksForRetryAfterPlusJitter() {
+        RequestGovernor governor = governor();
+        governor.onResponse(429, null, null, null, "600");
+
+        long blockedFor = governor.blockedForMs();
+        assertTrue(governor.isBlocked());
+        assertTrue(blockedFor > 600_000 && blockedFor <= 600_000 + RequestGovernor.JITTER_MS / 2);
+        assertEquals("Too many requests, try again in 10 minutes", governor.describeFailure("Failed"));
+        try {
+            governor.acquire();
+            fail("Expected the request to be refused while blocked");
+        } catch (RequestGovernor.RateLimitedException e) {
+            assertTrue(e.getWaitMs() > 600_000);
+        }
+    }
+
+    @Test
+    public void retryAfterOnSuccess_blocksTheNextRequest() {
+        // The middleware lets the request that uses up the budget through, with Retry-After
+        RequestGovernor governor = governor();
+        governor.onResponse(200, "10", "0", "600", "600");
+        assertTrue(governor.isBlocked());
+    }
+
+    @Test
+    public void tooManyRequestsWithoutRetryAfter_assumesTheMiddlewareBlock() {
+        RequestGovernor governor = governor();
+        governor.onResponse(429, null, null, null, null);
+        assertTrue(governor.blockedForMs() > RequestGovernor.BLOCK_MS - 1000);
+    }
+
+    @Test
+    public void retryDelay_backsOffExponentiallyWithJitterUpToTheMax() {
+        RequestGovernor governor = governor();
+        assertEquals(RequestGovernor.BACKOFF_BASE_MS / 2, governor.retryDelayMs(0));
+        assertEquals(RequestGovernor.BACKOFF_BASE_MS, governor.retryDelayMs(1));
+        assertEquals(RequestGovernor.BACKOFF_MAX_MS / 2, governor.retryDelayMs(30));
+        assertEquals("Failed", governor.describeFailure("Failed"));
+    }
+
+    @Test
+    public void retryDelay_waitsOutABlock() {
+        RequestGovernor governor = governor();
+        governor.onResponse(429, null, null, null, "60");
+        assertTrue(governor.retryDelayMs(0) > 60_000);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.thetapapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TapChangesTest {
+
+    private static final List<Tap> CATALOG = Arrays.asList(
+            TapQueryIndexTest.tap("1", "Bottle", "Plastic", "Small", "Low", "Water"),
+            TapQueryIndexTest.tap("2", "Drum", "Metal", "Large", "High", "Oil"),
+            TapQueryIndexTest.tap("3", "Tank", "Metal", "Large", "High", "Wine")
+    );
+
+    @Test
+    public void applyTo_updatesInPlaceDropsDeletedAndAppendsNew() {
+        Tap edited = TapQueryIndexTest.tap("2", "Drum", "Plastic", "Large", "Low", "Oil");
+        Tap added = TapQueryIndexTest.tap("4", "Bottle", "Metal", "Small", "Low", "Water");
+        TapChanges changes = new TapChanges(9, Arrays.asList(added, edited), Collections.singletonList("1"));
+
+        List<Tap> result = changes.applyTo(CATALOG);
+
+        assertEquals(Arrays.asList(edited, CATALOG.get(2), added), result);
+        // The cached list is left alone
+        assertEquals("Metal", CATALOG.get(1).getMaterial());
+    }
+
+    @Test
+    public void applyTo_ignoresTombstonesForUnknownIds() {
+        TapChanges changes = new TapChanges(9, Collections.<Tap>emptyList(), Collections.singletonList("42"));
+
+        assertEquals(CATALOG, changes.applyTo(CATALOG));
+        assertFalse(changes.isEmpty());
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.thetapapp;
+
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TapDetailCacheTest {
+
+    @Test
+    public void fetch_concurrentRequestsForSameIdShareOneCall() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        TapDetailCache cache = new TapDetailCache((ids, token) -> {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return taps(ids);
+        }, 8, 60_000);
+
+        CountDownLatch done = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            cache.fetch("42", new CountingCallback(done));
+        }
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertNotNull(cache.peek("42"));
+        assertTrue(cache.isFresh("42"));
+    }
+
+    @Test
+    public void fetch_cancelsRequestOnceLastCallerDetaches() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        TapDetailCache cache = new TapDetailCache((ids, token) -> {
+            started.countDown();
+            while (!token.isCancelled()) {
+                Thread.yield();
+            }
+            cancelled.countDown();
+            throw new InterruptedIOException("Cancelled");
+        }, 8, 60_000);
+
+        TapDetailCache.Callback ignore = new TapDetailCache.Callback() {
+            @Override
+            public void onTap(Tap tap) {
+            }
+
+            @Override
+            public void onError(Exception e) {
+            }
+        };
+        Runnable first = cache.fetch("7", ignore);
+        Runnable second = cache.fetch("7", ignore);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        first.run();
+        assertEquals(1, cancelled.getCount());
+        second.run();
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void fetch_idsAskedForTogetherGoOutAsOneBatch() throws InterruptedException {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        TapDetailCache cache = new TapDetailCache((ids, token) -> {
+            batches.add(ids);
+            return taps(ids);
+        }, 8, 60_000);
+
+        CountDownLatch done = new CountDownLatch(3);
+        cache.prefetch(Arrays.asList("1", "2"));
+        cache.fetch("3", new CountingCallback(done));
+        cache.fetch("1", new CountingCallback(done));
+        cache.fetch("4", new CountingCallback(done));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, batches.size());
+        // Waited-on ids first (in the order they were queued), the remaining prefetch rides along
+        assertEquals(Arrays.asList("1", "3", "4", "2"), batches.get(0));
+        assertTrue(cache.isFresh("2"));
+    }
+
+    @Test
+    public void fetch_unknownIdReportsError() throws InterruptedException {
+        TapDetailCache cache = new TapDetailCache((ids, token) -> new HashMap<>(), 8, 60_000);
+        CountDownLatch failed = new CountDownLatch(1);
+
+        cache.fetch("9", new TapDetailCache.Callback() {
+            @Override
+            public void onTap(Tap tap) {
+                fail("Unexpected tap");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                failed.countDown();
+            }
+        });
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        TapDetailCache cache = new TapDetailCache((ids, token) -> null, 2, 60_000);
+        cache.put(TapQueryIndexTest.tap("1", "Drum", "Metal", "Large", "High", "Oil"));
+        cache.put(TapQueryIndexTest.tap("2", "Drum", "Metal", "Large", "High", "Oil"));
+        cache.peek("1");
+        cache.put(TapQueryIndexTest.tap("3", "Drum", "Metal", "Large", "High", "Oil"));
+
+        assertNotNull(cache.peek("1"));
+        assertNull(cache.peek("2"));
+        assertNotNull(cache.peek("3"));
+    }
+
+    @Test
+    public void trimToSize_dropsLeastRecentlyUsedFirst() {
+        TapDetailCache cache = new TapDetailCache((ids, token) -> null, 8, 60_000);
+        cache.put(TapQueryIndexTest.tap("1", "Drum", "Metal", "Large", "High", "Oil"));
+        cache.put(TapQueryIndexTest.tap("2", "Drum", "Metal", "Large", "High", "Oil"));
+        cache.put(TapQueryIndexTest.tap("3", "Drum", "Metal", "Large", "High", "Oil"));
+        cache.peek("1");
+
+        long oneTap = cache.sizeBytes() / 3;
+        cache.trimToSize(oneTap * 2);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.peek("2"));
+        assertNotNull(cache.peek("1"));
+
+        cache.trimToSize(0);
+        assertEquals(0, cache.sizeBytes());
+    }
+
+    @Test
+    public void isFresh_falseOnceTtlHasPassed() {
+        TapDetailCache cache = new TapDetailCache((ids, token) -> null, 2, 0);
+        cache.put(TapQueryIndexTest.tap("1", "Drum", "Metal", "Large", "High", "Oil"));
+
+        assertNotNull(cache.peek("1"));
+        assertFalse(cache.isFresh("1"));
+    }
+
+    private static Map<String, Tap> taps(List<String> ids) {
+        Map<String, Tap> taps = new HashMap<>();
+        for (String id : ids) {
+            taps.put(id, TapQueryIndexTest.tap(id, "Drum", "Metal", "Large", "High", "Oil"));
+        }
+        return taps;
+    }
+
+    private static class CountingCallback implements TapDetailCache.Callback {
+        private final CountDownLatch m_done;
+
+        CountingCallback(CountDownLatch done) {
+            m_done = done;
+        }
+
+        @Override
+        public void onTap(Tap tap) {
+            m_done.countDown();
+        }
+
+        @Override
+        public void onError(Exception e) {
+            fail(e.getMessage());
+        }
+    }
+}
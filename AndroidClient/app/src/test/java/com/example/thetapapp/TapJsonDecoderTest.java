@@ -0,0 +1,71 @@
+package com.example.thetapapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TapJsonDecoderTest {
+
+    @Test
+    public void readTapList_decodesCatalogIntoTaps() throws IOException {
+        String json = "{\"success\":true,\"count\":2,\"data\":["
+                + "{\"id\":\"1700000000000\",\"title\":\"Brass tap\",\"description\":\"20mm\",\"image_url\":\"http://img/1.png\","
+                + "\"image_variants\":\"http://img/1_128.webp 128w\","
+                + "\"container_type\":\"Drum\",\"material\":\"Metal\",\"size\":\"Small\",\"flow_rate\":\"High\",\"liquid_type\":\"Oil\","
+                + "\"created_at\":\"2025-10-07T10:00:00Z\",\"extra\":{\"nested\":[1,2]}},"
+                + "{\"id\":2,\"title\":\"Plastic tap\",\"material\":\"Metal\",\"category\":\"Water\",\"description\":null}"
+                + "],\"message\":\"available taps retrieved successfully\"}";
+
+        TapListResponse response = decode(json);
+
+        assertTrue(response.isSuccess());
+        assertEquals(-1, response.getVersion());
+        assertEquals(2, response.getTaps().size());
+
+        Tap first = response.getTaps().get(0);
+        assertEquals("1700000000000", first.getId());
+        assertEquals("Brass tap", first.getTitle());
+        assertEquals("http://img/1.png", first.getImage_url());
+        assertEquals("http://img/1_128.webp 128w", first.getImage_variants());
+        assertEquals("Drum", first.getContainer_type());
+        assertEquals("Oil", first.getCategory());
+
+        Tap second = response.getTaps().get(1);
+        assertEquals("2", second.getId());
+        assertEquals("Water", second.getCategory());
+        assertNull(second.getDescription());
+        // Repeated attribute values share one instance
+        assertSame(first.getMaterial(), second.getMaterial());
+    }
+
+    @Test
+    public void readTapList_noMatchesGivesEmptyList() throws IOException {
+        TapListResponse response = decode("{\"success\":false,\"message\":\"No matching taps found for your specifications.\"}");
+
+        assertFalse(response.isSuccess());
+        assertTrue(response.getTaps().isEmpty());
+    }
+
+    @Test
+    public void readChanges_decodesUpsertsAndTombstones() throws IOException {
+        String json = "{\"success\":true,\"since\":4,\"version\":7,"
+                + "\"upserts\":[{\"id\":\"2\",\"title\":\"Renamed\",\"material\":\"Metal\"}],"
+                + "\"deleted\":[\"3\",4],\"message\":\"catalog changes retrieved successfully\"}";
+
+        TapChanges changes = TapJsonDecoder.readChanges(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(7, changes.getVersion());
+        assertEquals(1, changes.getUpserts().size());
+        assertEquals("Renamed", changes.getUpserts().get(0).getTitle());
+        assertEquals(Arrays.asList("3", "4"), changes.getDeleted());
+    }
+
+    private static TapListResponse decode(String json) throws IOException {
+        return TapJsonDecoder.readTapList(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.thetapapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TapQueryIndexTest {
+
+    private static final List<Tap> CATALOG = Arrays.asList(
+            tap("1", "Bottle", "Plastic", "Small", "Low", "Water"),
+            tap("2", "Drum", "Metal", "Large", "High", "Oil"),
+            tap("3", "Drum", "Metal", "Large", "High", "Wine"),
+            tap("4", "Tank", "Metal", "Large", "High", "Oil")
+    );
+
+    @Test
+    public void query_andsAllFiveAttributes() {
+        TapQueryIndex index = new TapQueryIndex(CATALOG);
+
+        Map<String, String> filters = new HashMap<>();
+        filters.put("container_type", "Drum");
+        filters.put("material", "Metal");
+        filters.put("size", "Large");
+        filters.put("flow_rate", "High");
+        filters.put("category", "Oil");
+
+        List<Tap> result = index.query(filters);
+        assertEquals(1, result.size());
+        assertEquals("2", result.get(0).getId());
+    }
+
+    @Test
+    public void query_keepsCatalogOrderAndIgnoresMissingFilters() {
+        TapQueryIndex index = new TapQueryIndex(CATALOG);
+
+        Map<String, String> filters = new HashMap<>();
+        filters.put("material", "Metal");
+
+        List<Tap> result = index.query(filters);
+        assertEquals(3, result.size());
+        assertEquals("2", result.get(0).getId());
+        assertEquals("4", result.get(2).getId());
+    }
+
+    @Test
+    public void query_unknownValueMatchesNothing() {
+        TapQueryIndex index = new TapQueryIndex(CATALOG);
+
+        Map<String, String> filters = new HashMap<>();
+        filters.put("material", "Ceramic");
+
+        assertTrue(index.query(filters).isEmpty());
+    }
+
+    @Test
+    public void facetCounts_leaveOutEachAttributesOwnFilter() {
+        TapQueryIndex index = new TapQueryIndex(CATALOG);
+
+        Map<String, String> filters = new HashMap<>();
+        filters.put("container_type", "Drum");
+        filters.put("category", "Oil");
+
+        List<Map<String, Integer>> counts = index.facetCounts(filters);
+
+        // Containers holding oil
+        assertEquals(Integer.valueOf(1), counts.get(0).get("Drum"));
+        assertEquals(Integer.valueOf(1), counts.get(0).get("Tank"));
+        assertEquals(Integer.valueOf(0), counts.get(0).get("Bottle"));
+        // Materials of oil drums
+        assertEquals(Integer.valueOf(1), counts.get(1).get("Metal"));
+        assertEquals(Integer.valueOf(0), counts.get(1).get("Plastic"));
+        // Liquids in drums
+        assertEquals(Integer.valueOf(1), counts.get(4).get("Oil"));
+        assertEquals(Integer.valueOf(1), counts.get(4).get("Wine"));
+        assertEquals(Integer.valueOf(0), counts.get(4).get("Water"));
+    }
+
+    static Tap tap(String id, String container, String material, String size, String flow, String category) {
+        return new Tap(id, "Tap " + id, "", "", container, material, size, flow, category);
+    }
+}
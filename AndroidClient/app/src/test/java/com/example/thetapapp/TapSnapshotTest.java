@@ -0,0 +1,116 @@
+package com.example.thetapapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TapSnapshotTest {
+
+    @Rule
+    public TemporaryFolder m_folder = new TemporaryFolder();
+
+    private static final List<Tap> CATALOG = Arrays.asList(
+            new Tap("1", "Brass tap", "Old \u00e9 one", "http://img/1.jpg", "http://img/1_128.webp 128w",
+                    "Bottle", "Plastic", "Small", "Low", "Water"),
+            new Tap("2", null, null, null, "Drum", "Metal", "Large", "High", null),
+            TapQueryIndexTest.tap("3", "Drum", "Metal", "Large", "High", "Oil")
+    );
+
+    @Test
+    public void writeAndOpen_roundTripsEveryField() throws IOException {
+        File file = m_folder.newFile("catalog.snapshot");
+        TapSnapshot.write(CATALOG, file);
+
+        TapSnapshot snapshot = TapSnapshot.open(file);
+        assertEquals(CATALOG.size(), snapshot.size());
+        assertEquals(CATALOG, snapshot.asList());
+        assertEquals("Brass tap", snapshot.getTitle(0));
+        assertNull(snapshot.getTitle(1));
+        assertEquals("http://img/1_128.webp 128w", snapshot.getImageVariants(0));
+        assertNull(snapshot.getAttribute(1, 4));
+        // Dictionary values are shared, not decoded per row
+        assertSame(snapshot.getAttribute(1, 0), snapshot.getAttribute(2, 0));
+    }
+
+    @Test
+    public void emptyCatalog_roundTrips() throws IOException {
+        TapSnapshot snapshot = TapSnapshot.read(TapSnapshot.encode(Arrays.<Tap>asList()));
+        assertEquals(0, snapshot.size());
+        assertTrue(snapshot.asList().isEmpty());
+    }
+
+    @Test
+    public void queryIndex_readsAttributesFromSnapshot() throws IOException {
+        TapSnapshot snapshot = TapSnapshot.read(TapSnapshot.encode(CATALOG));
+        TapQueryIndex index = new TapQueryIndex(snapshot.asList());
+
+        Map<String, String> filters = new HashMap<>();
+        filters.put("container_type", "Drum");
+        filters.put("category", "Oil");
+        List<Tap> result = index.query(filters);
+
+        assertEquals(1, result.size());
+        assertEquals(CATALOG.get(2), result.get(0));
+    }
+
+    @Test
+    public void asList_reusesDecodedRowsUntilTrimmed() throws IOException {
+        TapSnapshot snapshot = TapSnapshot.read(TapSnapshot.encode(CATALOG));
+        List<Tap> taps = snapshot.asList();
+
+        Tap first = taps.get(0);
+        assertSame(first, taps.get(0));
+        assertEquals(HeapSizes.estimateBytes(first), snapshot.rowCacheBytes());
+
+        taps.get(1);
+        snapshot.trimRowCache(snapshot.rowCacheBytes() - 1);
+        // The least recently read row went first
+        assertSame(taps.get(1), taps.get(1));
+        assertNotSame(first, taps.get(0));
+
+        snapshot.trimRowCache(0);
+        assertEquals(0, snapshot.rowCacheBytes());
+    }
+
+    @Test(expected = TapSnapshot.CorruptSnapshotException.class)
+    public void flippedByte_failsChecksum() throws IOException {
+        File file = m_folder.newFile("catalog.snapshot");
+        TapSnapshot.write(CATALOG, file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long position = raf.length() - 3;
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0x20);
+        }
+        TapSnapshot.open(file);
+    }
+
+    @Test(expected = TapSnapshot.CorruptSnapshotException.class)
+    public void truncatedFile_isRejected() throws IOException {
+        File file = m_folder.newFile("catalog.snapshot");
+        TapSnapshot.write(CATALOG, file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+        TapSnapshot.open(file);
+    }
+
+    @Test(expected = TapSnapshot.CorruptSnapshotException.class)
+    public void otherFormatVersion_isRejected() throws IOException {
+        ByteBuffer buffer = TapSnapshot.encode(CATALOG);
+        buffer.putInt(4, TapSnapshot.FORMAT_VERSION + 1);
+        TapSnapshot.read(buffer);
+    }
+}
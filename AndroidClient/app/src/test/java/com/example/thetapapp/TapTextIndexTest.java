@@ -0,0 +1,76 @@
+package com.example.thetapapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TapTextIndexTest {
+
+    private static final Tap BRASS = new Tap("1", "Brass tap", "20mm thread, for oil drums", "", null, null, null, null, null);
+    private static final Tap PLASTIC = new Tap("2", "Plastic tap", "20mm, food safe", "", null, null, null, null, null);
+    private static final Tap STEEL = new Tap("3", "Steel valve", "Brass-free, 25mm", "", null, null, null, null, null);
+
+    private static final List<Tap> CATALOG = Arrays.asList(BRASS, PLASTIC, STEEL);
+
+    @Test
+    public void search_andsWordsAndMatchesPrefixes() {
+        TapTextIndex index = new TapTextIndex(CATALOG);
+
+        assertEquals(Collections.singletonList(BRASS), index.search("brass 20mm"));
+        assertEquals(Arrays.asList(BRASS, STEEL), index.search("BRA"));
+        assertEquals(Arrays.asList(BRASS, PLASTIC), index.search("tap 20"));
+        assertTrue(index.search("copper").isEmpty());
+        assertTrue(index.search("  ").isEmpty());
+    }
+
+    @Test
+    public void apply_followsDeltaSync() {
+        TapTextIndex index = new TapTextIndex(CATALOG);
+        Tap renamed = new Tap("2", "Copper tap", "20mm", "", null, null, null, null, null);
+        Tap added = new Tap("4", "Brass mixer", "", "", null, null, null, null, null);
+
+        index.apply(new TapChanges(2, Arrays.asList(renamed, added), Collections.singletonList("3")));
+
+        assertEquals(3, index.size());
+        assertTrue(index.search("plastic").isEmpty());
+        assertEquals(Collections.singletonList(renamed), index.search("copper"));
+        assertEquals(Arrays.asList(BRASS, added), index.search("brass"));
+    }
+
+    @Test
+    public void apply_compactsOnceMostDocsAreRetired() {
+        TapTextIndex index = new TapTextIndex(CATALOG);
+        for (int i = 0; i < 10; i++) {
+            index.apply(new TapChanges(i, Collections.singletonList(
+                    new Tap("1", "Brass tap v" + i, "", "", null, null, null, null, null)),
+                    Collections.<String>emptyList()));
+        }
+
+        assertEquals(3, index.size());
+        assertEquals(1, index.search("brass tap").size());
+        assertEquals("Brass tap v9", index.search("brass tap").get(0).getTitle());
+    }
+
+    @Test
+    public void estimateBytes_countsCopiesDecodedFromSnapshot() throws Exception {
+        long shared = new TapTextIndex(CATALOG).estimateBytes();
+        TapSnapshot snapshot = TapSnapshot.read(TapSnapshot.encode(CATALOG));
+
+        long decoded = new TapTextIndex(snapshot.asList()).estimateBytes();
+
+        long copies = 0;
+        for (Tap tap : CATALOG) {
+            copies += HeapSizes.estimateBytes(tap);
+        }
+        assertEquals(shared + copies, decoded);
+    }
+
+    @Test
+    public void tokenize_splitsOnPunctuationOnce() {
+        assertEquals(Arrays.asList("brass", "free", "25mm"), TapTextIndex.tokenize("Brass-free, 25mm brass"));
+    }
+}
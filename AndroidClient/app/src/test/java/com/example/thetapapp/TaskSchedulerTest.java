@@ -0,0 +1,141 @@
+package com.example.thetapapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TaskSchedulerTest {
+
+    @Test
+    public void submit_runsUserVisibleWorkAheadOfQueuedPrefetch() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(1, 1);
+        CountDownLatch release = blockForeground(scheduler);
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        scheduler.submit(TaskScheduler.Priority.PREFETCH, () -> { order.add("prefetch-1"); done.countDown(); });
+        scheduler.submit(TaskScheduler.Priority.PREFETCH, () -> { order.add("prefetch-2"); done.countDown(); });
+        scheduler.submit(TaskScheduler.Priority.USER_VISIBLE, () -> { order.add("search"); done.countDown(); });
+
+        assertEquals(2, scheduler.getQueueDepth(TaskScheduler.Priority.PREFETCH));
+        assertEquals(1, scheduler.getQueueDepth(TaskScheduler.Priority.USER_VISIBLE));
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("search", "prefetch-1", "prefetch-2"), order);
+    }
+
+    @Test
+    public void submit_runsIdleWorkBehindPrefetchQueuedLater() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(1, 1);
+        CountDownLatch release = blockForeground(scheduler);
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+        scheduler.submit(TaskScheduler.Priority.IDLE, () -> { order.add("warm"); done.countDown(); });
+        scheduler.submit(TaskScheduler.Priority.PREFETCH, () -> { order.add("thumbnail"); done.countDown(); });
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("thumbnail", "warm"), order);
+    }
+
+    @Test
+    public void cancelledToken_dropsQueuedWork() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(1, 1);
+        CountDownLatch release = blockForeground(scheduler);
+
+        CancellationToken token = new CancellationToken();
+        TaskScheduler.Task task = scheduler.submit(TaskScheduler.Priority.USER_VISIBLE, token,
+                () -> fail("Cancelled work must not run"));
+        token.cancel();
+
+        assertTrue(task.isCancelled());
+        assertEquals(0, scheduler.getQueueDepth(TaskScheduler.Priority.USER_VISIBLE));
+        assertEquals(1, scheduler.getStats(TaskScheduler.Priority.USER_VISIBLE).cancelled);
+
+        CountDownLatch after = new CountDownLatch(1);
+        scheduler.submit(TaskScheduler.Priority.USER_VISIBLE, after::countDown);
+        release.countDown();
+        assertTrue(after.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void backgroundSync_doesNotHoldForegroundWorkers() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(1, 1);
+        CountDownLatch releaseSync = new CountDownLatch(1);
+        scheduler.submit(TaskScheduler.Priority.BACKGROUND_SYNC, () -> await(releaseSync));
+
+        CountDownLatch ran = new CountDownLatch(1);
+        scheduler.submit(TaskScheduler.Priority.USER_VISIBLE, ran::countDown);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        releaseSync.countDown();
+    }
+
+    @Test
+    public void userVisibleWorkers_runUserWorkWhilePrefetchHoldsForegroundWorkers() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(1, 1, 1);
+        CountDownLatch releasePrefetch = new CountDownLatch(1);
+        CountDownLatch prefetchStarted = new CountDownLatch(1);
+        scheduler.submit(TaskScheduler.Priority.PREFETCH, () -> {
+            prefetchStarted.countDown();
+            await(releasePrefetch);
+        });
+        assertTrue(prefetchStarted.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch ran = new CountDownLatch(1);
+        scheduler.submit(TaskScheduler.Priority.USER_VISIBLE, ran::countDown);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        releasePrefetch.countDown();
+
+        // Queued with both pools, it ran once and left neither queue behind
+        Thread.sleep(50);
+        TaskScheduler.Stats stats = scheduler.getStats(TaskScheduler.Priority.USER_VISIBLE);
+        assertEquals(1, stats.started);
+        assertEquals(0, stats.queueDepth);
+    }
+
+    @Test
+    public void stats_recordWaitForWorker() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(1, 1);
+        CountDownLatch release = blockForeground(scheduler);
+
+        CountDownLatch ran = new CountDownLatch(1);
+        scheduler.submit(TaskScheduler.Priority.PREFETCH, ran::countDown);
+        Thread.sleep(50);
+        release.countDown();
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+
+        TaskScheduler.Stats stats = scheduler.getStats(TaskScheduler.Priority.PREFETCH);
+        assertEquals(1, stats.submitted);
+        assertEquals(1, stats.started);
+        assertTrue(stats.maxWaitMs() >= 40);
+    }
+
+    // Occupies the only foreground worker until the returned latch is released
+    private static CountDownLatch blockForeground(TaskScheduler scheduler) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(TaskScheduler.Priority.USER_VISIBLE, () -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.thetapapp;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Intent;
+import android.os.Looper;
+import android.view.View;
+import android.widget.Spinner;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowToast;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ Runs the real screens against MockTapServer and times what the user waits for:
+ ViewAllTapsActivity start to first bound row, and QueryTapsActivity search to results.
+ Each measurement has a budget and the test fails when it is exceeded, so a regression
+ fails the build. Budgets can be changed per run, e.g.
+ ./gradlew test -Ptapapp.budget.firstRow.3g=2500
+ The plain Application is used instead of TapApplication, so the cold measurements stay
+ cold; the warm ones run AppWarmup themselves, against the mock server.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class)
+public class TimeToFirstRowTest {
+
+    private static final int CATALOG_SIZE = 1000;
+    // Give up waiting well after any budget, so a hang reports a number instead of timing out
+    private static final long GIVE_UP_MS = 30_000;
+    // How long the user looks at the home screen before opening the list
+    private static final long HOME_SCREEN_MS = 1000;
+
+    private MockTapServer m_server;
+
+    @Before
+    public void setUp() throws IOException {
+        m_server = new MockTapServer().setCatalogSize(CATALOG_SIZE);
+        ApiClient.setInstance(new ApiClient(m_server.getBaseUrl()));
+        // Every test starts cold, with nothing on the device
+        TapCatalogRepository.setInstance(null);
+    }
+
+    @After
+    public void tearDown() {
+        m_server.stop();
+        ApiClient.setInstance(null);
+        TapCatalogRepository.setInstance(null);
+    }
+
+    @Test
+    public void firstRow_local() {
+        assertFirstRowWithinBudget(MockTapServer.NetworkProfile.LOCAL, 1500);
+    }
+
+    @Test
+    public void firstRow_3g() {
+        assertFirstRowWithinBudget(MockTapServer.NetworkProfile.THREE_G, 3000);
+    }
+
+    @Test
+    public void firstRow_edge() {
+        assertFirstRowWithinBudget(MockTapServer.NetworkProfile.EDGE, 5000);
+    }
+
+    @Test
+    public void firstRow_afterWarmUp_3g() {
+        m_server.setNetworkProfile(MockTapServer.NetworkProfile.THREE_G);
+        AppWarmup.start(RuntimeEnvironment.getApplication());
+        sleep(HOME_SCREEN_MS);
+
+        assertFirstRowWithinBudget(MockTapServer.NetworkProfile.THREE_G, "firstRowWarm", "first row, warm", 1000);
+        // The list used the speculative first page instead of asking for it again
+        assertEquals(1, m_server.getFirstPageRequestCount());
+    }
+
+    @Test
+    public void firstRow_afterWarmUpStillInFlight_edge() {
+        // Opened before the speculative page is in, the list waits for it rather than sending its own
+        m_server.setNetworkProfile(MockTapServer.NetworkProfile.EDGE);
+        AppWarmup.start(RuntimeEnvironment.getApplication());
+
+        assertFirstRowWithinBudget(MockTapServer.NetworkProfile.EDGE, "firstRowWarm", "first row, warm", 5000);
+        assertEquals(1, m_server.getFirstPageRequestCount());
+    }
+
+    @Test
+    public void firstRun_loadsRestOfCatalogInOneRequest() {
+        // Paging through 1000 taps would take 20 of the rate limiter's 10 requests
+        ActivityController<ViewAllTapsActivity> controller = Robolectric.buildActivity(ViewAllTapsActivity.class);
+        long start = System.nanoTime();
+        ViewAllTapsActivity activity = controller.setup().get();
+        RecyclerView list = listOf(activity, R.id.tapsContainer);
+
+        waitFor(() -> list.getAdapter() != null && list.getAdapter().getItemCount() == CATALOG_SIZE, start);
+        assertEquals(2, m_server.getRequestCount());
+        controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void searchResults_local() {
+        assertSearchWithinBudget(MockTapServer.NetworkProfile.LOCAL, 1500);
+    }
+
+    @Test
+    public void searchResults_3g() {
+        assertSearchWithinBudget(MockTapServer.NetworkProfile.THREE_G, 3000);
+    }
+
+    @Test
+    public void rateLimitedFirstPage_reportsWaitInsteadOfSpinningForever() {
+        m_server.setNetworkProfile(MockTapServer.NetworkProfile.THREE_G).rateLimitNext(1);
+
+        ActivityController<ViewAllTapsActivity> controller = Robolectric.buildActivity(ViewAllTapsActivity.class);
+        long start = System.nanoTime();
+        ViewAllTapsActivity activity = controller.setup().get();
+
+        long elapsed = waitFor(() -> "Too many requests, try again in 10 minutes"
+                .equals(ShadowToast.getTextOfLatestToast()), start);
+        long budget = budget("rateLimited.3g", 3000);
+        report("rate-limited error", MockTapServer.NetworkProfile.THREE_G, elapsed, budget);
+
+        assertEquals(View.GONE, activity.findViewById(R.id.progressBar).getVisibility());
+        assertEquals(0, listOf(activity, R.id.tapsContainer).getChildCount());
+        assertTrue("Rate-limited error took " + elapsed + " ms, budget " + budget + " ms", elapsed <= budget);
+        controller.pause().stop().destroy();
+    }
+
+    private void assertFirstRowWithinBudget(MockTapServer.NetworkProfile profile, long defaultBudgetMs) {
+        m_server.setNetworkProfile(profile);
+        assertFirstRowWithinBudget(profile, "firstRow", "first row", defaultBudgetMs);
+    }
+
+    private void assertFirstRowWithinBudget(MockTapServer.NetworkProfile profile, String name, String label,
+                                            long defaultBudgetMs) {
+        ActivityController<ViewAllTapsActivity> controller = Robolectric.buildActivity(ViewAllTapsActivity.class);
+        long start = System.nanoTime();
+        ViewAllTapsActivity activity = controller.setup().get();
+        RecyclerView list = listOf(activity, R.id.tapsContainer);
+
+        long elapsed = waitFor(() -> list.getChildCount() > 0, start);
+        long budget = budget(name + "." + profile, defaultBudgetMs);
+        report(label, profile, elapsed, budget);
+
+        assertTrue("First row on " + profile + " took " + elapsed + " ms, budget " + budget + " ms",
+                elapsed <= budget);
+        controller.pause().stop().destroy();
+    }
+
+    private void assertSearchWithinBudget(MockTapServer.NetworkProfile profile, long defaultBudgetMs) {
+        m_server.setNetworkProfile(profile);
+
+        ActivityController<QueryTapsActivity> queryController = Robolectric.buildActivity(QueryTapsActivity.class);
+        QueryTapsActivity queryActivity = queryController.setup().get();
+        int[] spinners = {R.id.spinnerContainerType, R.id.spinnerMaterial, R.id.spinnerSize,
+                R.id.spinnerFlow, R.id.spinnerLiquidType};
+        for (int id : spinners) {
+            ((Spinner) queryActivity.findViewById(id)).setSelection(1);
+        }
+
+        long start = System.nanoTime();
+        queryActivity.findViewById(R.id.btnSearch).performClick();
+        Intent search = shadowOf(queryActivity).getNextStartedActivity();
+        assertNotNull("Search did not open the results screen", search);
+
+        ActivityController<QueryResultsActivity> resultsController =
+                Robolectric.buildActivity(QueryResultsActivity.class, search);
+        QueryResultsActivity results = resultsController.setup().get();
+        RecyclerView list = listOf(results, R.id.tapResultsContainer);
+
+        long elapsed = waitFor(() -> list.getChildCount() > 0, start);
+        long budget = budget("search." + profile, defaultBudgetMs);
+        report("search results", profile, elapsed, budget);
+
+        assertTrue("Search on " + profile + " took " + elapsed + " ms, budget " + budget + " ms",
+                elapsed <= budget);
+        resultsController.pause().stop().destroy();
+        queryController.pause().stop().destroy();
+    }
+
+    private interface Condition {
+        boolean met();
+    }
+
+    /**
+     Runs the main looper (the network runs on real threads) until the condition holds,
+     and returns the wall-clock milliseconds since start.
+     */
+    private static long waitFor(Condition condition, long start) {
+        while (!condition.met()) {
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            if (elapsedMs > GIVE_UP_MS) {
+                fail("Gave up after " + elapsedMs + " ms");
+            }
+            // Advances one frame so posted LiveData values, diffs and layout passes run
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(16));
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static RecyclerView listOf(Activity activity, int tapListId) {
+        return activity.findViewById(tapListId).findViewById(R.id.tapListRecyclerView);
+    }
+
+    private static long budget(String name, long defaultMs) {
+        return Long.getLong("tapapp.budget." + name, defaultMs);
+    }
+
+    private static void report(String what, MockTapServer.NetworkProfile profile, long elapsedMs, long budgetMs) {
+        System.out.println(String.format(Locale.US, "[latency] %-18s %-6s %5d ms (budget %d ms)",
+                what, profile, elapsedMs, budgetMs));
+    }
+}
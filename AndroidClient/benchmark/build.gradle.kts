@@ -0,0 +1,53 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+// JVM microbenchmarks for the client's pure-Java hot paths (decoding, list mapping, queries)
+// over synthetic catalogs. Run with: ./gradlew :benchmark:jmh
+// Results land in benchmark/build/results/jmh/results.json.
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+sourceSets {
+    named("jmh") {
+        java {
+            // Benchmarks compile the app's own classes, not copies, so the numbers are for shipped code.
+            // Only Android-free classes can be listed here.
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/thetapapp/Tap.java",
+                "com/example/thetapapp/TapListResponse.java",
+                "com/example/thetapapp/TapJsonDecoder.java",
+                "com/example/thetapapp/TapQueryIndex.java",
+                "com/example/thetapapp/TapSnapshot.java",
+                "com/example/thetapapp/TapChanges.java",
+                "com/example/thetapapp/TapTextIndex.java",
+                "com/example/thetapapp/HeapSizes.java",
+                "com/example/thetapapp/benchmark/**"
+            )
+        }
+    }
+}
+
+dependencies {
+    jmh(libs.gson)
+    // The pre-typed-decoder path (JSONObject tree), kept as the baseline
+    jmh(libs.org.json)
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    benchmarkMode = listOf("thrpt")
+    timeUnit = "s"
+    // Allocation rate and bytes per operation next to throughput
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+    includes = providers.gradleProperty("jmhInclude").map { listOf(it) }.orElse(emptyList())
+}
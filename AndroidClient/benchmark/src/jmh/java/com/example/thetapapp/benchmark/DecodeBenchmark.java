@@ -0,0 +1,75 @@
+package com.example.thetapapp.benchmark;
+
+import com.example.thetapapp.Tap;
+import com.example.thetapapp.TapJsonDecoder;
+import com.example.thetapapp.TapListResponse;
+import com.example.thetapapp.TapSnapshot;
+
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ Decoding a GET /taps body: the org.json tree (with and without turning it into Taps)
+ against the streaming TapJsonDecoder, the same for the ?view=summary body the app asks
+ for, and opening the catalog from a TapSnapshot file, which is what a cold start with a
+ cached catalog pays instead.
+ */
+@State(Scope.Benchmark)
+public class DecodeBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogSize;
+
+    private byte[] m_body;
+    private byte[] m_summaryBody;
+    private File m_snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Tap> taps = SyntheticCatalog.generate(catalogSize);
+        m_body = SyntheticCatalog.toJson(taps);
+        m_summaryBody = SyntheticCatalog.toSummaryJson(taps);
+        m_snapshot = File.createTempFile("taps", ".snapshot");
+        TapSnapshot.write(taps, m_snapshot);
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_snapshot.delete();
+    }
+
+    @Benchmark
+    public JSONArray orgJsonTree() throws IOException {
+        return LegacyJsonDecoder.readTree(new ByteArrayInputStream(m_body));
+    }
+
+    @Benchmark
+    public List<?> orgJsonToTaps() throws IOException {
+        return LegacyJsonDecoder.toTaps(LegacyJsonDecoder.readTree(new ByteArrayInputStream(m_body)));
+    }
+
+    @Benchmark
+    public TapListResponse typedStreaming() throws IOException {
+        return TapJsonDecoder.readTapList(new ByteArrayInputStream(m_body));
+    }
+
+    @Benchmark
+    public TapListResponse typedStreamingSummary() throws IOException {
+        return TapJsonDecoder.readTapList(new ByteArrayInputStream(m_summaryBody));
+    }
+
+    @Benchmark
+    public TapSnapshot snapshotOpen() throws IOException {
+        return TapSnapshot.open(m_snapshot);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.thetapapp.benchmark;
+
+import com.example.thetapapp.Tap;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ LegacyJsonDecoder:
+ The org.json path the screens used before TapJsonDecoder, kept only as a baseline:
+ the whole body is read into a String line by line, parsed into a JSONObject tree,
+ and rows are read out of the tree with optString.
+ */
+final class LegacyJsonDecoder {
+
+    private LegacyJsonDecoder() {
+    }
+
+    static JSONArray readTree(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        StringBuilder response = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            response.append(line);
+        }
+        return new JSONObject(response.toString()).getJSONArray("data");
+    }
+
+    static List<Tap> toTaps(JSONArray data) {
+        List<Tap> taps = new ArrayList<>(data.length());
+        for (int i = 0; i < data.length(); i++) {
+            JSONObject tap = data.getJSONObject(i);
+            taps.add(new Tap(
+                    tap.optString("id"),
+                    tap.optString("title"),
+                    tap.optString("description"),
+                    tap.optString("image_url"),
+                    tap.optString("container_type"),
+                    tap.optString("material"),
+                    tap.optString("size"),
+                    tap.optString("flow_rate"),
+                    tap.optString("liquid_type")));
+        }
+        return taps;
+    }
+}
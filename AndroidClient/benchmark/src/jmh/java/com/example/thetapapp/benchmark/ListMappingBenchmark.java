@@ -0,0 +1,59 @@
+package com.example.thetapapp.benchmark;
+
+import com.example.thetapapp.Tap;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ Mapping the decoded catalog onto list rows, i.e. what binding every row once costs
+ outside of the views: the old adapter looked each field up in the JSONObject tree on
+ every bind, the current one reads fields off a Tap and derives the row's stable id.
+ */
+@State(Scope.Benchmark)
+public class ListMappingBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogSize;
+
+    private JSONArray m_tree;
+    private List<Tap> m_taps;
+
+    @Setup
+    public void setUp() throws IOException {
+        m_taps = SyntheticCatalog.generate(catalogSize);
+        m_tree = LegacyJsonDecoder.readTree(new ByteArrayInputStream(SyntheticCatalog.toJson(m_taps)));
+    }
+
+    @Benchmark
+    public void orgJsonRows(Blackhole blackhole) {
+        for (int i = 0; i < m_tree.length(); i++) {
+            JSONObject tap = m_tree.getJSONObject(i);
+            blackhole.consume(tap.optString("title"));
+            blackhole.consume(tap.optString("description"));
+            blackhole.consume(tap.optString("image_url"));
+            blackhole.consume(tap.optString("id"));
+        }
+    }
+
+    @Benchmark
+    public void typedRows(Blackhole blackhole) {
+        for (int i = 0; i < m_taps.size(); i++) {
+            Tap tap = m_taps.get(i);
+            blackhole.consume(tap.getTitle());
+            blackhole.consume(tap.getDescription());
+            blackhole.consume(tap.getImage_url());
+            blackhole.consume(Long.parseLong(tap.getId()));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.thetapapp.benchmark;
+
+import com.example.thetapapp.Tap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ PayloadSizes:
+ Bytes on the wire for the full and the ?view=summary GET /taps body, raw and gzipped
+ (the server compresses anything over 1KB). Not a JMH benchmark, run the main method
+ from the jmh classpath.
+ */
+public final class PayloadSizes {
+
+    private PayloadSizes() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("taps        full raw   summary raw   full gzip   summary gzip   saved (gzip)");
+        for (int size : new int[]{1000, 10000, 100000}) {
+            List<Tap> taps = SyntheticCatalog.generate(size);
+            byte[] full = SyntheticCatalog.toJson(taps);
+            byte[] summary = SyntheticCatalog.toSummaryJson(taps);
+            long fullGzip = gzippedLength(full);
+            long summaryGzip = gzippedLength(summary);
+            System.out.println(String.format(Locale.US, "%-8d %11d %13d %11d %14d %13.1f%%",
+                    size, full.length, summary.length, fullGzip, summaryGzip,
+                    100.0 * (fullGzip - summaryGzip) / fullGzip));
+        }
+    }
+
+    private static long gzippedLength(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.size();
+    }
+}
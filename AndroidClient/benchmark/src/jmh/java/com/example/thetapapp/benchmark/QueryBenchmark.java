@@ -0,0 +1,76 @@
+package com.example.thetapapp.benchmark;
+
+import com.example.thetapapp.Tap;
+import com.example.thetapapp.TapQueryIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ Answering a QueryTapsActivity filter from the catalog: a linear scan comparing every
+ tap (how the server filters) against the TapQueryIndex BitSets, plus what building
+ the index costs each time the catalog changes.
+ "single" filters on one attribute, "all" sets all five.
+ */
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int catalogSize;
+
+    @Param({"single", "all"})
+    public String filterSet;
+
+    private List<Tap> m_taps;
+    private TapQueryIndex m_index;
+    private Map<String, String> m_filters;
+
+    @Setup
+    public void setUp() {
+        m_taps = SyntheticCatalog.generate(catalogSize);
+        m_index = new TapQueryIndex(m_taps);
+
+        m_filters = new HashMap<>();
+        m_filters.put("material", "Metal");
+        if ("all".equals(filterSet)) {
+            m_filters.put("container_type", "Drum");
+            m_filters.put("size", "Large");
+            m_filters.put("flow_rate", "High");
+            m_filters.put("category", "Oil");
+        }
+    }
+
+    @Benchmark
+    public List<Tap> linearScan() {
+        List<Tap> results = new ArrayList<>();
+        for (Tap tap : m_taps) {
+            boolean matches = true;
+            for (int a = 0; a < TapQueryIndex.ATTRIBUTES.length && matches; a++) {
+                String wanted = m_filters.get(TapQueryIndex.ATTRIBUTES[a]);
+                matches = wanted == null || wanted.equals(TapQueryIndex.attributeValue(tap, a));
+            }
+            if (matches) {
+                results.add(tap);
+            }
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<Tap> indexQuery() {
+        return m_index.query(m_filters);
+    }
+
+    @Benchmark
+    public TapQueryIndex indexBuild() {
+        return new TapQueryIndex(m_taps);
+    }
+}
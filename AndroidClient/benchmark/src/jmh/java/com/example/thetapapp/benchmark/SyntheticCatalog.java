@@ -0,0 +1,136 @@
+package com.example.thetapapp.benchmark;
+
+import com.example.thetapapp.Tap;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ SyntheticCatalog:
+ Generates tap catalogs of any size that look like what the node server returns.
+ Attribute values come from the same vocabularies as the QueryTapsActivity spinners,
+ ids are creation timestamps like the server's, and the JSON uses the server's field
+ names (liquid_type rather than category). Seeded, so every run sees the same catalog.
+ */
+public final class SyntheticCatalog {
+
+    static final String[] CONTAINER_TYPES = {"Bottle", "Drum", "Tank"};
+    static final String[] MATERIALS = {"Plastic", "Metal", "Ceramic"};
+    static final String[] SIZES = {"Small", "Medium", "Large"};
+    static final String[] FLOWS = {"Low", "Medium", "High"};
+    static final String[] LIQUID_TYPES = {"Water", "Oil", "Wine"};
+    static final String[] DETAILS = {
+            "The handle locks in the closed position so it can't be knocked open in transit.",
+            "Washers and seals are food grade and can be replaced without tools.",
+            "Fits the standard 2 inch bung; an adapter for 3/4 inch openings is available.",
+    };
+
+    private static final long FIRST_ID = 1_700_000_000_000L;
+    private static final long SEED = 42L;
+
+    private static final String CREATED_AT = "2025-10-07T09:30:00.000Z";
+    private static final String CREATED_BY = "admin@tapapp.co.za";
+    private static final int SUMMARY_DESCRIPTION_LENGTH = 120;
+
+    private SyntheticCatalog() {
+    }
+
+    public static List<Tap> generate(int size) {
+        Random random = new Random(SEED);
+        List<Tap> taps = new ArrayList<>(size);
+        long id = FIRST_ID;
+        for (int i = 0; i < size; i++) {
+            id += 1 + random.nextInt(5000);
+            String container = pick(random, CONTAINER_TYPES);
+            String material = pick(random, MATERIALS);
+            taps.add(new Tap(
+                    Long.toString(id),
+                    material + " " + container.toLowerCase() + " tap #" + i,
+                    description(random, material, container),
+                    "http://taptasticitdma.freedynamicdns.org:3000/uploads/" + id + ".jpg",
+                    container,
+                    material,
+                    pick(random, SIZES),
+                    pick(random, FLOWS),
+                    pick(random, LIQUID_TYPES)));
+        }
+        return taps;
+    }
+
+    /**
+     The GET /api/public/taps body for the catalog, full records as stored in Redis.
+     */
+    public static byte[] toJson(List<Tap> taps) {
+        return toJson(taps, false);
+    }
+
+    /**
+     The GET /api/public/taps?view=summary body: no bookkeeping fields, descriptions
+     shortened like the server's projectTaps() does.
+     */
+    public static byte[] toSummaryJson(List<Tap> taps) {
+        return toJson(taps, true);
+    }
+
+    private static byte[] toJson(List<Tap> taps, boolean summary) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(taps.size() * 400);
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            writer.name("success").value(true);
+            writer.name("count").value(taps.size());
+            writer.name("data").beginArray();
+            for (Tap tap : taps) {
+                writer.beginObject();
+                writer.name("id").value(tap.getId());
+                writer.name("title").value(tap.getTitle());
+                writer.name("description").value(summary ? shorten(tap.getDescription()) : tap.getDescription());
+                writer.name("image_url").value(tap.getImage_url());
+                writer.name("container_type").value(tap.getContainer_type());
+                writer.name("material").value(tap.getMaterial());
+                writer.name("size").value(tap.getSize());
+                writer.name("flow_rate").value(tap.getFlow_rate());
+                writer.name("liquid_type").value(tap.getCategory());
+                if (!summary) {
+                    writer.name("created_at").value(CREATED_AT);
+                    writer.name("updated_at").value(CREATED_AT);
+                    writer.name("created_by").value(CREATED_BY);
+                }
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // Same cut as the server's shortenDescription()
+    private static String shorten(String text) {
+        if (text == null || text.length() <= SUMMARY_DESCRIPTION_LENGTH) return text;
+        String cut = text.substring(0, SUMMARY_DESCRIPTION_LENGTH);
+        int space = cut.lastIndexOf(' ');
+        return (space > SUMMARY_DESCRIPTION_LENGTH / 2 ? cut.substring(0, space) : cut).trim() + "...";
+    }
+
+    // One to four sentences, admins write anything from a line to a paragraph
+    private static String description(Random random, String material, String container) {
+        StringBuilder text = new StringBuilder("A " + material.toLowerCase() + " tap for "
+                + container.toLowerCase() + "s, tested for continuous use and easy to clean.");
+        for (int n = random.nextInt(DETAILS.length + 1); n > 0; n--) {
+            text.append(' ').append(pick(random, DETAILS));
+        }
+        return text.toString();
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.thetapapp.benchmark;
+
+import com.example.thetapapp.Tap;
+import com.example.thetapapp.TapTextIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ Search-as-you-type over titles and descriptions: lower-casing and scanning every tap
+ per keystroke against the TapTextIndex prefix lookup, plus what building the index costs.
+ "common" matches a third of the catalog, "prefix" is a half-typed word and "rare" a
+ tap number that matches a handful.
+ */
+@State(Scope.Benchmark)
+public class TextSearchBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int catalogSize;
+
+    @Param({"common", "prefix", "rare"})
+    public String queryType;
+
+    private List<Tap> m_taps;
+    private TapTextIndex m_index;
+    private String m_query;
+
+    @Setup
+    public void setUp() {
+        m_taps = SyntheticCatalog.generate(catalogSize);
+        m_index = new TapTextIndex(m_taps);
+        switch (queryType) {
+            case "common": m_query = "metal"; break;
+            case "prefix": m_query = "plastic dr"; break;
+            default: m_query = "tap 777"; break;
+        }
+    }
+
+    @Benchmark
+    public List<Tap> linearScan() {
+        String[] words = m_query.toLowerCase(Locale.ROOT).split(" ");
+        List<Tap> results = new ArrayList<>();
+        for (Tap tap : m_taps) {
+            String text = (tap.getTitle() + " " + tap.getDescription()).toLowerCase(Locale.ROOT);
+            boolean matches = true;
+            for (int w = 0; w < words.length && matches; w++) {
+                matches = text.contains(words[w]);
+            }
+            if (matches) {
+                results.add(tap);
+            }
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<Tap> indexSearch() {
+        return m_index.search(m_query);
+    }
+
+    @Benchmark
+    public TapTextIndex indexBuild() {
+        return new TapTextIndex(m_taps);
+    }
+}
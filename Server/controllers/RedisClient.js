@@ -1,5 +1,5 @@
 
-const {createClient} = require('redis');
+const {createClient, WatchError} = require('redis');
 const url = process.env.REDIS_URL || 'redis://localhost:6379';
 const client = createClient({url});
 
@@ -9,4 +9,22 @@ async function connect() {
     if (!client.isOpen) await client.connect();
 }
 
-module.exports = {client, connect};
\ No newline at end of file
+// WATCH needs a connection of its own: an EXEC from any other request on the
+// shared one would drop the watch. Transactions on it take turns.
+let watchClient = null;
+let watchQueue = Promise.resolve();
+
+function withWatchClient(work) {
+    const run = watchQueue.then(async () => {
+        if (!watchClient) {
+            watchClient = client.duplicate();
+            watchClient.on('error',(err) => console.error('Redis Watch Client Error',err));
+        }
+        if (!watchClient.isOpen) await watchClient.connect();
+        return work(watchClient);
+    });
+    watchQueue = run.catch(() => {});
+    return run;
+}
+
+module.exports = {client, connect, withWatchClient, WatchError};
\ No newline at end of file
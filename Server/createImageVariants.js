@@ -0,0 +1,38 @@
+// createImageVariants.js
+// Makes the app thumbnails (image_variants, see utils/ImageVariants) for taps uploaded
+// before they were generated at upload time. Taps that already have them are skipped.
+// Usage: node createImageVariants.js
+
+require('dotenv').config();
+const { connect, client } = require('./controllers/RedisClient');
+const helper = require('./functions/helperFunctions');
+const { createImageVariants } = require('./utils/ImageVariants');
+
+async function createMissingVariants() {
+  await connect();
+  const taps = await helper.getAllTaps();
+  let created = 0;
+
+  for (const tap of taps) {
+    if (tap.image_variants || !tap.image_url) continue;
+    try {
+      const response = await fetch(tap.image_url);
+      if (!response.ok) throw new Error(`HTTP ${response.status}`);
+      const buffer = Buffer.from(await response.arrayBuffer());
+
+      const name = decodeURIComponent(new URL(tap.image_url).pathname.split('/').pop());
+      const variants = await createImageVariants(buffer, name, 'taps');
+      // goes through the change log, so apps pick the thumbnails up with their next delta sync
+      await helper.updateTap(tap.id, { image_variants: variants });
+      created++;
+      console.log(`${tap.id}: ${variants || 'image too small, no variants'}`);
+    } catch (e) {
+      console.error(`${tap.id}: failed,`, e.message);
+    }
+  }
+
+  console.log(`Done, ${created} of ${taps.length} taps updated.`);
+  await client.quit();
+}
+
+createMissingVariants();
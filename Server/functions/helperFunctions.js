@@ -2,7 +2,7 @@ const bcrypt = require('bcryptjs');
 const jwt = require('jsonwebtoken');
 
 //Redic client connection - mishka()
-const { client } = require('../controllers/RedisClient');
+const { client, withWatchClient, WatchError } = require('../controllers/RedisClient');
 
 // ============================================
 // USER MANAGEMENT FUNCTIONS ai(claude) assisted
@@ -124,6 +124,178 @@ async function getUserRole(email) {
 // ============================================
 // TAP MANAGEMENT FUNCTIONS ai(claude) assisted
 // ============================================
+/**
+ * Catalog version, bumped on every tap write.
+ * Public routes use it as the ETag so clients can revalidate
+ * their cached catalog without downloading it again.
+ */
+const CATALOG_VERSION_KEY = 'taps:version';
+
+async function getCatalogVersion() {
+  try {
+    const version = await client.get(CATALOG_VERSION_KEY);
+    return version ? parseInt(version, 10) : 0;
+  } catch (err) {
+    console.error('Error getting catalog version:', err);
+    throw err;
+  }
+}
+
+/**
+ * Change log for delta sync: one entry per version, "u:<id>" for a created or
+ * updated tap and "d:<id>" for a deleted one.
+ * The version bump, the append and the trim are queued on the MULTI of the write
+ * itself, so the last entry always belongs to the current version and the list
+ * covers the versions (version - length, version]. Older entries are trimmed away;
+ * a client behind that window has to download the full catalog again.
+ */
+const CHANGE_LOG_KEY = 'taps:changes';
+const CHANGE_LOG_MAX = 1000;
+
+function queueTapChange(multi, op, id) {
+  return multi
+    .incr(CATALOG_VERSION_KEY)
+    .rPush(CHANGE_LOG_KEY, `${op}:${id}`)
+    .lTrim(CHANGE_LOG_KEY, -CHANGE_LOG_MAX, -1);
+}
+
+/**
+ * Attribute indexes for queryTaps: one set of tap ids per value of every
+ * attribute the app filters on, taps:by:<attribute>:<value>. The admin write
+ * paths keep them in the same MULTI as the tap hash, so a query never sees a
+ * tap under a value it doesn't have. Updates and deletes WATCH the hash they
+ * read the old values from, so two admins editing one tap at once can't leave
+ * it in the wrong sets (writeTapWatched()).
+ * Older records store the liquid type as `category`, they are indexed under
+ * liquid_type all the same. Rebuild with `node reindexTaps.js`.
+ */
+const INDEXED_ATTRIBUTES = ['container_type', 'material', 'size', 'flow_rate', 'liquid_type'];
+const INDEX_KEY_PREFIX = 'taps:by:';
+
+function attributeValue(tap, attribute) {
+  const value = attribute === 'liquid_type' ? tap.liquid_type || tap.category : tap[attribute];
+  return value ? String(value) : null;
+}
+
+function indexKey(attribute, value) {
+  return `${INDEX_KEY_PREFIX}${attribute}:${value}`;
+}
+
+// index sets a tap belongs in
+function indexKeysOf(tap) {
+  const keys = [];
+  for (const attribute of INDEXED_ATTRIBUTES) {
+    const value = attributeValue(tap, attribute);
+    if (value) keys.push(indexKey(attribute, value));
+  }
+  return keys;
+}
+
+/**
+ * What changed in the public catalog after version `since`.
+ * Returns { version, truncated, upserts, deleted }: upserts are the current
+ * taps (last write wins), deleted the ids to drop, which includes taps that
+ * became inactive. truncated is true when the log no longer reaches back to
+ * `since` (or `since` is from another database); upserts and deleted are then
+ * empty and the caller should reload the whole catalog.
+ */
+async function getCatalogChanges(since) {
+  try {
+    const [rawVersion, entries] = await client.multi()
+      .get(CATALOG_VERSION_KEY)
+      .lRange(CHANGE_LOG_KEY, 0, -1)
+      .exec();
+    const version = rawVersion ? parseInt(rawVersion, 10) : 0;
+
+    if (since > version || since < version - entries.length) {
+      return { version, truncated: true, upserts: [], deleted: [] };
+    }
+
+    // Entries newer than `since` are the last (version - since) ones
+    const latest = new Map();
+    for (const entry of entries.slice(entries.length - (version - since))) {
+      const separator = entry.indexOf(':');
+      latest.set(entry.slice(separator + 1), entry.slice(0, separator));
+    }
+
+    const changedIds = [...latest.keys()].filter(id => latest.get(id) === 'u');
+    const upserts = applyTapFilters(await getTapsByIds(changedIds), { activeOnly: true });
+    const upserted = new Set(upserts.map(tap => tap.id));
+    const deleted = [...latest.keys()].filter(id => !upserted.has(id));
+
+    return { version, truncated: false, upserts, deleted };
+  } catch (err) {
+    console.error('Error getting catalog changes:', err);
+    throw err;
+  }
+}
+
+/**
+ * Fetch many tap hashes in one pipelined round trip to Redis,
+ * instead of one hGetAll round trip per id.
+ * Ids whose hash no longer exists are left out.
+ */
+async function getTapsByIds(ids) {
+  if (!ids || ids.length === 0) return [];
+
+  const pipeline = client.multi();
+  for (const id of ids) {
+    pipeline.hGetAll(`tap:${id}`);
+  }
+  const results = await pipeline.execAsPipeline();
+
+  const taps = [];
+  results.forEach((tapData, i) => {
+    if (tapData && Object.keys(tapData).length > 0) {
+      taps.push({ id: ids[i], ...tapData });
+    }
+  });
+  return taps;
+}
+
+/**
+ * Summary representation of a tap for list screens (?view=summary): only the
+ * fields a list row and the app's on-device filters and search use. Bookkeeping
+ * fields (created_at, updated_at, created_by, status) are left out. The
+ * description is sent whole: the app searches it and shows it on the detail
+ * screen until the full record arrives.
+ */
+const SUMMARY_FIELDS = ['id', 'title', 'description', 'image_url', 'image_variants',
+  'container_type', 'material', 'size', 'flow_rate', 'liquid_type'];
+
+function toTapSummary(tap) {
+  const summary = {};
+  for (const field of SUMMARY_FIELDS) {
+    if (tap[field] !== undefined) summary[field] = tap[field];
+  }
+  // older records keep the liquid type in `category` only
+  if (summary.liquid_type === undefined && tap.category !== undefined) {
+    summary.liquid_type = tap.category;
+  }
+  return summary;
+}
+
+// taps as the given view ('summary' or 'full') represents them
+function projectTaps(taps, view) {
+  return view === 'summary' ? taps.map(toTapSummary) : taps;
+}
+
+// filters shared by the full catalog and the paged catalog
+function applyTapFilters(taps, filters) {
+  let filteredTaps = taps;
+
+  if (filters.activeOnly) {
+    // Only return active taps (optional filter)
+    filteredTaps = filteredTaps.filter(tap => tap.status !== 'inactive');
+  }
+
+  if (filters.category) {
+    filteredTaps = filteredTaps.filter(tap => tap.category === filters.category);
+  }
+
+  return filteredTaps;
+}
+
 /**
  * Get all taps from Redis
  */
@@ -137,29 +309,79 @@ async function getAllTaps(filters = {}) {
     }
     
     // Get all tap data
-    const taps = [];
-    for (const id of tapIds) {
-      const tapData = await client.hGetAll(`tap:${id}`);
-      if (tapData && Object.keys(tapData).length > 0) {
-        taps.push({ id, ...tapData });
-      }
-    }
+    const taps = await getTapsByIds(tapIds);
     
     // Apply filters if provided
-    let filteredTaps = taps;
-    
-    if (filters.activeOnly) {
-      // Only return active taps (optional filter)
-      filteredTaps = taps.filter(tap => tap.status !== 'inactive');
+    return applyTapFilters(taps, filters);
+  } catch (err) {
+    console.error('Error getting all taps:', err);
+    throw err;
+  }
+}
+
+// Tap ids are creation timestamps (see createTap), so a shorter one is older.
+// taps:ids is in this order too, new taps are pushed on the end.
+function compareTapIds(a, b) {
+  return a.length - b.length || (a < b ? -1 : a > b ? 1 : 0);
+}
+
+// tries at finding the cursor in taps:ids before falling back to a scan
+const PAGE_CURSOR_ATTEMPTS = 3;
+
+// Position in taps:ids right after the tap id `cursor`, and the ids from there on
+// (at most limit + 1 of them read). Also works when that tap has been deleted since.
+async function idsAfterCursor(cursor, limit) {
+  for (let attempt = 0; attempt < PAGE_CURSOR_ATTEMPTS; attempt++) {
+    const position = await client.lPos('taps:ids', cursor);
+    if (position === null) break;
+
+    // A write between LPOS and here shifts the list, so check the cursor is still there
+    const [total, ids] = await client.multi()
+      .lLen('taps:ids')
+      .lRange('taps:ids', position, position + limit)
+      .exec();
+    if (ids[0] === cursor) {
+      return { total, start: position + 1, ids: ids.slice(1) };
     }
-    
-    if (filters.category) {
-      filteredTaps = filteredTaps.filter(tap => tap.category === filters.category);
+  }
+
+  // The cursor's tap is gone: continue at the first tap created after it
+  const all = await client.lRange('taps:ids', 0, -1);
+  let start = all.findIndex(id => compareTapIds(id, cursor) > 0);
+  if (start < 0) start = all.length;
+  return { total: all.length, start, ids: all.slice(start, start + limit) };
+}
+
+/**
+ * Get one page of taps from Redis.
+ * The cursor is the id of the last tap of the previous page (null for the first
+ * page), the page continues with the tap after it. Taps created meanwhile are
+ * added at the end and deleted ones leave no gap, so going page by page never
+ * skips or repeats a tap. nextCursor is null once the end has been reached.
+ * A page can hold fewer than `limit` taps when some were filtered out.
+ */
+async function getTapsPage(cursor = null, limit = 50, filters = {}) {
+  try {
+    let total, start, tapIds;
+    if (cursor === null) {
+      [total, tapIds] = await client.multi()
+        .lLen('taps:ids')
+        .lRange('taps:ids', 0, limit - 1)
+        .exec();
+      start = 0;
+    } else {
+      ({ total, start, ids: tapIds } = await idsAfterCursor(cursor, limit));
     }
-    
-    return filteredTaps;
+
+    const taps = await getTapsByIds(tapIds);
+    const more = start + tapIds.length < total;
+
+    return {
+      taps: applyTapFilters(taps, filters),
+      nextCursor: more && tapIds.length > 0 ? tapIds[tapIds.length - 1] : null
+    };
   } catch (err) {
-    console.error('Error getting all taps:', err);
+    console.error('Error getting taps page:', err);
     throw err;
   }
 }
@@ -184,23 +406,21 @@ async function getTapById(id) {
 
 /**
  * Create new tap in Redis
+ * The hash, the id list, the index sets and the change log go in one MULTI.
  */
 async function createTap(tapData) {
   try {
     // Generate unique ID
     const id = Date.now().toString();
-    
-    // Store tap data
-    await client.hSet(`tap:${id}`, tapData);
-    
-    // Add to taps:ids list
-    await client.rPush('taps:ids', id);
-    
-    // Add to category set
-    if (tapData.category) {
-      await client.sAdd(`taps:by:category:${tapData.category}`, id);
+
+    const multi = client.multi()
+      .hSet(`tap:${id}`, tapData)
+      .rPush('taps:ids', id);
+    for (const key of indexKeysOf(tapData)) {
+      multi.sAdd(key, id);
     }
-    
+    await queueTapChange(multi, 'u', id).exec();
+
     return id;
   } catch (err) {
     console.error('Error creating tap:', err);
@@ -208,35 +428,58 @@ async function createTap(tapData) {
   }
 }
 
+// Writes that lost to another one this many times in a row give up
+const TAP_WRITE_ATTEMPTS = 5;
+
+/**
+ * Read-modify-write of tap:<id> as an optimistic transaction. The hash is
+ * WATCHed before it is read, build(conn, tap) turns what was read into the
+ * MULTI to run (or null when the tap doesn't exist), and when another write
+ * to the tap got in between, EXEC fails and it starts over from the read.
+ * Returns false when there was no tap.
+ */
+async function writeTapWatched(id, build) {
+  return withWatchClient(async conn => {
+    for (let attempt = 0; attempt < TAP_WRITE_ATTEMPTS; attempt++) {
+      await conn.watch(`tap:${id}`);
+      const tap = await conn.hGetAll(`tap:${id}`);
+      const multi = tap && Object.keys(tap).length > 0 ? build(conn, tap) : null;
+      if (!multi) {
+        await conn.unwatch();
+        return false;
+      }
+
+      try {
+        if (await multi.exec() !== null) return true;
+      } catch (err) {
+        if (!(err instanceof WatchError)) throw err;
+      }
+    }
+    throw new Error(`tap:${id} kept changing, gave up after ${TAP_WRITE_ATTEMPTS} attempts`);
+  });
+}
+
 /**
  * Update tap in Redis
+ * Moves the tap between index sets for the attributes that changed, in the
+ * same MULTI as the hash.
  */
 async function updateTap(id, updates) {
   try {
-    // Check if tap exists
-    const exists = await client.exists(`tap:${id}`);
-    if (!exists) {
-      return false;
-    }
-    
-    // Get old category before update
-    const oldTap = await client.hGetAll(`tap:${id}`);
-    const oldCategory = oldTap.category;
-    
-    // Update tap data
-    await client.hSet(`tap:${id}`, updates);
-    
-    // Update category set if category changed
-    if (updates.category && updates.category !== oldCategory) {
-      // Remove from old category
-      if (oldCategory) {
-        await client.sRem(`taps:by:category:${oldCategory}`, id);
+    return await writeTapWatched(id, (conn, oldTap) => {
+      // The old values tell which index sets the tap leaves
+      const oldKeys = indexKeysOf(oldTap);
+      const newKeys = indexKeysOf({ ...oldTap, ...updates });
+
+      const multi = conn.multi().hSet(`tap:${id}`, updates);
+      for (const key of oldKeys) {
+        if (!newKeys.includes(key)) multi.sRem(key, id);
       }
-      // Add to new category
-      await client.sAdd(`taps:by:category:${updates.category}`, id);
-    }
-    
-    return true;
+      for (const key of newKeys) {
+        if (!oldKeys.includes(key)) multi.sAdd(key, id);
+      }
+      return queueTapChange(multi, 'u', id);
+    });
   } catch (err) {
     console.error('Error updating tap:', err);
     throw err;
@@ -248,25 +491,16 @@ async function updateTap(id, updates) {
  */
 async function deleteTap(id) {
   try {
-    // Get tap data to find category
-    const tapData = await client.hGetAll(`tap:${id}`);
-    
-    if (!tapData || Object.keys(tapData).length === 0) {
-      return false;
-    }
-    
-    // Delete from tap hash
-    await client.del(`tap:${id}`);
-    
-    // Remove from taps:ids list
-    await client.lRem('taps:ids', 0, id);
-    
-    // Remove from category set
-    if (tapData.category) {
-      await client.sRem(`taps:by:category:${tapData.category}`, id);
-    }
-    
-    return true;
+    return await writeTapWatched(id, (conn, tapData) => {
+      // The tap data tells which index sets to take it out of
+      const multi = conn.multi()
+        .del(`tap:${id}`)
+        .lRem('taps:ids', 0, id);
+      for (const key of indexKeysOf(tapData)) {
+        multi.sRem(key, id);
+      }
+      return queueTapChange(multi, 'd', id);
+    });
   } catch (err) {
     console.error('Error deleting tap:', err);
     throw err;
@@ -275,34 +509,60 @@ async function deleteTap(id) {
 
 /**
  * Query taps by specifications
+ * filters maps attribute names (INDEXED_ATTRIBUTES) to the wanted value. The
+ * matching ids come from one SINTER of the attribute index sets, their hashes
+ * from one pipelined round trip, so the work grows with the number of matches
+ * rather than with the catalog. Taps come back in the order they were created,
+ * like the catalog.
  */
 async function queryTaps(filters) {
   try {
-    let taps = await getAllTaps();
-    
-    if (filters.liquid_type) {
-      taps = taps.filter(tap => tap.liquid_type === filters.liquid_type);
+    const wanted = INDEXED_ATTRIBUTES.filter(attribute => filters[attribute]);
+    if (wanted.length === 0) {
+      return await getAllTaps();
     }
-    
-    if (filters.material) {
-      taps = taps.filter(tap => tap.material === filters.material);
-    }
-    
-    if (filters.flow_rate) {
-      taps = taps.filter(tap => tap.flow_rate === filters.flow_rate);
-    }
-    
-    if (filters.size) {
-      taps = taps.filter(tap => tap.size === filters.size);
+
+    const keys = wanted.map(attribute => indexKey(attribute, filters[attribute]));
+    const ids = keys.length === 1 ? await client.sMembers(keys[0]) : await client.sInter(keys);
+
+    ids.sort(compareTapIds);
+
+    // An admin write racing the query can leave a set a step behind its hash
+    const taps = await getTapsByIds(ids);
+    return taps.filter(tap =>
+      wanted.every(attribute => attributeValue(tap, attribute) === String(filters[attribute])));
+  } catch (err) {
+    console.error('Error querying taps:', err);
+    throw err;
+  }
+}
+
+/**
+ * Rebuild the attribute index sets from the tap hashes, for data written
+ * before they were kept (or by hand). Old sets are dropped and the new ones
+ * written in one MULTI, so queries never see a half-built index.
+ * Returns the number of taps indexed.
+ */
+async function rebuildTapIndexes() {
+  try {
+    const oldKeys = [];
+    for await (const keys of client.scanIterator({ MATCH: `${INDEX_KEY_PREFIX}*`, COUNT: 500 })) {
+      oldKeys.push(...keys);
     }
-    
-    if (filters.container_type) {
-      taps = taps.filter(tap => tap.container_type === filters.container_type);
+
+    const taps = await getAllTaps();
+    const multi = client.multi();
+    if (oldKeys.length > 0) multi.del(oldKeys);
+    for (const tap of taps) {
+      for (const key of indexKeysOf(tap)) {
+        multi.sAdd(key, tap.id);
+      }
     }
-    
-    return taps;
+    await multi.exec();
+
+    return taps.length;
   } catch (err) {
-    console.error('Error querying taps:', err);
+    console.error('Error rebuilding tap indexes:', err);
     throw err;
   }
 }
@@ -351,10 +611,17 @@ module.exports = {
     getUserRole,
     
     getAllTaps,
+    getTapsByIds,
+    projectTaps,
+    getTapsPage,
+    getCatalogVersion,
+    getCatalogChanges,
     getTapById,
     createTap,
     updateTap,
     deleteTap,
     queryTaps,
+    rebuildTapIndexes,
+    INDEXED_ATTRIBUTES,
     getStats
 };
\ No newline at end of file
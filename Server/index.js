@@ -4,8 +4,10 @@ const cookieParser = require("cookie-parser");
 const bodyParser = require("body-parser");
 const publicRoutes = require("./routes/Public");
 const adminRoutes = require("./routes/Admin");
+const { gzipResponses } = require("./middleware/CompressionMiddleware");
 const { connect } = require("./controllers/RedisClient");
 require("dotenv").config();
+const imageStorage = require("./utils/ImageStorage");
 
 
 const port = 3000;
@@ -22,15 +24,23 @@ const app = express();
   const corsOptions = {
     origin: ["http://localhost:5173"],
     credentials: true,
+    // so the admin site can read the rate limit state too
+    exposedHeaders: ["Retry-After", "X-RateLimit-Limit", "X-RateLimit-Remaining", "X-RateLimit-Reset"],
   };
 
   app.use(bodyParser.json({ limit: "10mb" }));
   app.use(bodyParser.urlencoded({ limit: "10mb", extended: true }));
 
   app.use(cors(corsOptions));
+  app.use(gzipResponses);
   app.use(express.json());
   app.use(cookieParser());
 
+  if (imageStorage.useLocal()) {
+    // IMAGE_STORAGE=local: serve the uploaded images ourselves, names are unique so cache for good
+    app.use("/uploads", express.static(imageStorage.LOCAL_DIR, { maxAge: "365d", immutable: true }));
+  }
+
   app.use("/api/public", publicRoutes);
   app.use("/api/admin", adminRoutes);
 
@@ -38,7 +48,12 @@ const app = express();
     res.send("fortnite battlepass");
   });
 
-  app.listen(port, () => {
+  const server = app.listen(port, () => {
     console.log(`Server running on http://localhost:${port}`);
   });
+  // Node closes idle connections after 5s; the app opens one at start (AppWarmup) and comes back
+  // to it when the user opens a list, so keep it around for longer than that takes
+  server.keepAliveTimeout = 65_000;
+  // Has to outlast keepAliveTimeout, or a request arriving just before the close is dropped
+  server.headersTimeout = 66_000;
 })();
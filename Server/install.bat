@@ -7,4 +7,5 @@ npm i bcryptjs
 npm i multer
 npm i dotenv
 npm i nodemon
-npm i cors
\ No newline at end of file
+npm i cors
+npm i sharp@0.34.4
\ No newline at end of file
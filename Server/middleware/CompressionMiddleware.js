@@ -0,0 +1,52 @@
+const zlib = require("zlib");
+
+// Bodies smaller than this are sent as-is, gzip framing would cost more than it saves
+const MIN_COMPRESS_BYTES = 1024;
+
+/*
+    Gzips response bodies for clients that send "Accept-Encoding: gzip"
+    (the Android ApiClient always does). The tap catalog is repetitive JSON,
+    so this cuts the bytes on the wire several times over on slow mobile links.
+
+    res.send is wrapped rather than res.json so Express still computes the ETag
+    and answers conditional requests with a 304 after compression.
+*/
+function gzipResponses(req, res, next) {
+  const acceptEncoding = req.headers["accept-encoding"] || "";
+  if (!/\bgzip\b/i.test(acceptEncoding)) return next();
+
+  const originalSend = res.send.bind(res);
+
+  res.send = function (body) {
+    if (typeof body !== "string" && !Buffer.isBuffer(body)) {
+      return originalSend(body);
+    }
+
+    const buffer = Buffer.isBuffer(body) ? body : Buffer.from(body, "utf8");
+    if (buffer.length < MIN_COMPRESS_BYTES || res.getHeader("Content-Encoding")) {
+      return originalSend(body);
+    }
+
+    // Buffer bodies default to octet-stream, keep the type res.json/res.send would have picked
+    if (!res.getHeader("Content-Type")) {
+      res.type(typeof body === "string" ? "html" : "bin");
+    }
+
+    res.setHeader("Vary", "Accept-Encoding");
+
+    zlib.gzip(buffer, (err, compressed) => {
+      if (err) {
+        console.error("gzip failed, sending uncompressed:", err);
+        return originalSend(body);
+      }
+      res.setHeader("Content-Encoding", "gzip");
+      originalSend(compressed);
+    });
+
+    return res;
+  };
+
+  next();
+}
+
+module.exports = { gzipResponses };
@@ -12,6 +12,17 @@ const ALLOWED_TIMEFRAME = 5 * 60 * 1000;
 // Time that is set to timeout the user which is 10 minutes
 const BLOCK_TIME = THRESHOLD * 60 * 1000;
 
+/*
+    Tells the client where it stands so it can pace itself instead of running into the block:
+    X-RateLimit-Limit / -Remaining, and X-RateLimit-Reset, the seconds until the count
+    starts over. Blocked responses also get Retry-After.
+*/
+function setRateLimitHeaders(res, remaining, resetSeconds) {
+  res.set("X-RateLimit-Limit", String(THRESHOLD));
+  res.set("X-RateLimit-Remaining", String(Math.max(0, remaining)));
+  res.set("X-RateLimit-Reset", String(resetSeconds));
+}
+
 // normalize IP to standard ipv4
 function normIP(ip) {
   if (!ip) return "";
@@ -72,6 +83,7 @@ async function rateLimitCheck(req, res, next) {
 
       await client.hSet(`ratelimit:${IP}`, ratelimitQ);
       await client.rPush("ratelimits:ids", IP);
+      setRateLimitHeaders(res, THRESHOLD - 1, ALLOWED_TIMEFRAME / 1000);
       return next();
     }
 
@@ -85,6 +97,8 @@ async function rateLimitCheck(req, res, next) {
     // Check if currently blocked
     if (blockedUntil > nowTimestamp) {
       const waitTime = Math.ceil((blockedUntil - nowTimestamp) / 1000);
+      setRateLimitHeaders(res, 0, waitTime);
+      res.set("Retry-After", String(waitTime));
       return res.status(429).send("Too many requests, try again later");
     }
 
@@ -111,6 +125,15 @@ async function rateLimitCheck(req, res, next) {
 
     await client.rPush("ratelimits:ids", IP);
 
+    if (count > THRESHOLD) {
+      // This request still goes through, the ones after it are blocked
+      setRateLimitHeaders(res, 0, BLOCK_TIME / 1000);
+      res.set("Retry-After", String(BLOCK_TIME / 1000));
+    } else {
+      // The count only starts over once ALLOWED_TIMEFRAME passes without a request
+      setRateLimitHeaders(res, THRESHOLD - count, ALLOWED_TIMEFRAME / 1000);
+    }
+
     next();
   } catch (err) {
     console.error("Rate limiter error:", err);
@@ -0,0 +1,23 @@
+// reindexTaps.js
+// Rebuilds the attribute index sets /taps/query is answered from (taps:by:<attribute>:<value>,
+// see helperFunctions), for taps written before they were kept or edited by hand.
+// Safe to run on a live server, the old sets are swapped for the new ones in one MULTI.
+// Usage: node reindexTaps.js
+
+require('dotenv').config();
+const { connect, client } = require('./controllers/RedisClient');
+const helper = require('./functions/helperFunctions');
+
+async function reindex() {
+  await connect();
+  try {
+    const count = await helper.rebuildTapIndexes();
+    console.log(`Done, ${count} taps indexed.`);
+  } catch (e) {
+    console.error('Reindex failed:', e.message);
+    process.exitCode = 1;
+  }
+  await client.quit();
+}
+
+reindex();
@@ -20,7 +20,8 @@ const { upload } = require('../middleware/UploadMiddleware');
 const { verifyAdminRole, verifySuperAdminRole} = require('../middleware/RoleMiddleware') //barnard
 
 //utils - Conrad
-const {uploadFileToFirebase, removeFileFromFirebase} = require('../utils/FIleupload'); 
+const { uploadImageFile, removeImage } = require('../utils/ImageStorage');
+const { createImageVariants, removeImageVariants } = require('../utils/ImageVariants');
 // const publicRouter = require('./Public');
 
 //helper functions - Barnard
@@ -361,6 +362,17 @@ router.get('/taps/:id', verifyAccessToken, verifyAdminRole,
     }
 );
 
+// Thumbnails for the app (see utils/ImageVariants). The original upload is enough to
+// show the tap, so a failed resize only costs bandwidth: log it and store no variants.
+async function tryCreateImageVariants(file, folder) {
+    try {
+        return await createImageVariants(file.buffer, file.originalname, folder);
+    } catch (e) {
+        console.error("Error creating image variants:", e);
+        return '';
+    }
+}
+
 /*
     Create new tap - 7 Oct
     POST api/admin/taps
@@ -409,7 +421,7 @@ async (req, res) => {
         let image_url = '';
         try {
             // Upload file using path
-            image_url = await uploadFileToFirebase({ path: tempFilePath, originalname: req.file.originalname });
+            image_url = await uploadImageFile({ path: tempFilePath, originalname: req.file.originalname });
         } catch (e) {
             console.error("Error uploading image:", e);
             return res.status(500).json({
@@ -422,6 +434,8 @@ async (req, res) => {
             if (fs.existsSync(tempFilePath)) fs.unlinkSync(tempFilePath);
         }        
 
+        const image_variants = await tryCreateImageVariants(req.file);
+
         const tapData = {
             title,
             container_type,
@@ -431,6 +445,7 @@ async (req, res) => {
             liquid_type,
             description,
             image_url,
+            image_variants,
             created_at: new Date().toISOString(),
             updated_at: new Date().toISOString(),
             created_by: req.user?.email || "admin"
@@ -498,27 +513,23 @@ async (req, res) => {
                 //     await removeFileFromFirebase(oldFilePath);
                 // }
                 try {
-                    const urlObj = new URL(existingTap.image_url);
-                    let pathname = urlObj.pathname.substring(1); 
-
-                    const bucketName = process.env.FIREBASE_STORAGE_BUCKET;
-                    if (pathname.startsWith(bucketName)) {
-                        pathname = pathname.substring(bucketName.length + 1); 
-                    }
-
-                    await removeFileFromFirebase(pathname)
+                    await removeImage(existingTap.image_url)
 
                 } catch (e) {
-                    console.error("failed to delete old image:",pathname, e.message);
+                    console.error("failed to delete old image:", existingTap.image_url, e.message);
                 }
             }
+            await removeImageVariants(existingTap.image_variants);
 
             //upload new image
             const tempFilePath = path.join(os.tmpdir(), `${Date.now()}_${req.file.originalname}`);
             fs.writeFileSync(tempFilePath, req.file.buffer);
-            updates.image_url = await uploadFileToFirebase({ path: tempFilePath, originalname: req.file.originalname }, 'taps');
+            updates.image_url = await uploadImageFile({ path: tempFilePath, originalname: req.file.originalname }, 'taps');
 
             if (fs.existsSync(tempFilePath)) fs.unlinkSync(tempFilePath);
+
+            // always set, so a failed resize can't leave the old (deleted) variants listed
+            updates.image_variants = await tryCreateImageVariants(req.file, 'taps');
         }
 
         //upadte tap
@@ -567,22 +578,14 @@ router.delete('/taps/:id', verifyAccessToken, verifyAdminRole,
             //     }
             // }
             if (tap.image_url) {
-                let pathname = null;
                 try {
-                    const urlObj = new URL(tap.image_url);
-                    pathname = urlObj.pathname.substring(1); // Remove leading "/"
-                    
-                    const bucketName = process.env.FIREBASE_STORAGE_BUCKET;
-                    if (pathname.startsWith(bucketName)) {
-                        pathname = pathname.substring(bucketName.length + 1);
-                    }
-
-                    await removeFileFromFirebase(pathname)
+                    await removeImage(tap.image_url)
 
                 } catch (e) {
-                    console.error("FAiled to delete image, continuing with tap deletion:", pathname, e.message)
+                    console.error("FAiled to delete image, continuing with tap deletion:", tap.image_url, e.message)
                 }
             }
+            await removeImageVariants(tap.image_variants);
 
             //delete from db
             const success = await helper.deleteTap(id);
@@ -10,14 +10,87 @@ const helper = require('../functions/helperFunctions')
 
 
 
+// ETag for the whole catalog, derived from the version counter the admin write paths bump.
+// The summary view is a different representation, so it gets its own tag.
+function catalogEtag(version, view = 'full') {
+  return view === 'summary' ? `W/"taps-${version}-summary"` : `W/"taps-${version}"`;
+}
+
+// ?view= of the list routes: 'full' (default) or 'summary', see helper.projectTaps.
+// null for anything else.
+function requestedView(req) {
+  const view = req.query.view ?? 'full';
+  return view === 'full' || view === 'summary' ? view : null;
+}
+
+function badView(res) {
+  return res.status(400).json({
+    success: false,
+    error: "view must be 'full' or 'summary'"
+  });
+}
+
+// true when the client's If-None-Match already names this ETag
+function etagMatches(req, etag) {
+  const header = req.headers['if-none-match'];
+  if (!header) return false;
+  return header.split(',').some(tag => tag.trim() === etag || tag.trim() === '*');
+}
+
+// page size bounds for GET /taps?limit=
+const DEFAULT_PAGE_SIZE = 50;
+const MAX_PAGE_SIZE = 200;
+
 // GET /api/taps - View all taps
+// Supports If-None-Match: an unchanged catalog is answered with an empty 304
+// before any tap hashes are read from Redis.
+// Paged mode: GET /api/taps?limit=50&cursor=<nextCursor from the previous page>
+// ?view=summary sends the list-row fields only (see helper.projectTaps).
 router.get('/taps', rateLimitCheck, async (req, res) => {
   try {
+    const view = requestedView(req);
+    if (!view) return badView(res);
+
+    const version = await helper.getCatalogVersion();
+    const etag = catalogEtag(version, view);
+
+    res.set('ETag', etag);
+    res.set('Cache-Control', 'no-cache');
+
+    if (etagMatches(req, etag)) {
+      return res.status(304).end();
+    }
+
+    if (req.query.limit !== undefined || req.query.cursor !== undefined) {
+      const limit = parseInt(req.query.limit ?? DEFAULT_PAGE_SIZE, 10);
+      // the id of the previous page's last tap, see helper.getTapsPage
+      const cursor = req.query.cursor ?? null;
+
+      if (!Number.isInteger(limit) || limit < 1 || limit > MAX_PAGE_SIZE ||
+          (cursor !== null && !/^\d{1,20}$/.test(cursor))) {
+        return res.status(400).json({
+          success: false,
+          error: `limit must be 1-${MAX_PAGE_SIZE} and cursor a value returned as nextCursor`
+        });
+      }
+
+      const page = await helper.getTapsPage(cursor, limit, {activeOnly: true});
+      return res.status(200).json({
+        success: true,
+        count: page.taps.length,
+        version: version,
+        nextCursor: page.nextCursor,
+        data: helper.projectTaps(page.taps, view),
+        message: "available taps retrieved successfully"
+      });
+    }
+
     const taps = await helper.getAllTaps({activeOnly: true})
     res.status(200).json({
       success: true,
       count: taps.length,
-      data: taps,
+      version: version,
+      data: helper.projectTaps(taps, view),
       message: "available taps retrieved successfully"
     });
   } catch (e) {
@@ -46,35 +119,53 @@ router.get('/taps', rateLimitCheck, async (req, res) => {
 });
 
 
+// Fields of a /taps/query body: the tap attributes by their stored names
+// (helper.INDEXED_ATTRIBUTES), plus the names older clients send for them.
+// `category` is what the app calls the liquid type, after the field older
+// tap records store it in.
+const QUERY_FIELD_ALIASES = {
+  containerType: 'container_type',
+  flow: 'flow_rate',
+  liquidType: 'liquid_type',
+  category: 'liquid_type'
+};
+
+// filters for helper.queryTaps from a query body, the stored name winning over
+// an alias. null when a field isn't a string.
+function queryFilters(body) {
+  const filters = {};
+  const fields = Object.entries(QUERY_FIELD_ALIASES).concat(
+    helper.INDEXED_ATTRIBUTES.map(attribute => [attribute, attribute]));
+
+  for (const [field, attribute] of fields) {
+    const value = body?.[field];
+    if (value === undefined || value === null || value === '') continue;
+    if (typeof value !== 'string') return null;
+    filters[attribute] = value;
+  }
+  return filters;
+}
+
 // POST /api/public/taps/query - Search taps by specifications
+// Body: any of container_type, material, size, flow_rate, liquid_type (see
+// QUERY_FIELD_ALIASES for the older names). Answered from the attribute
+// index sets, see helper.queryTaps.
+// Accepts ?view=summary like GET /taps.
 router.post('/taps/query', rateLimitCheck, async (req, res) => {
   try {
-    const { containerType, material, size, flow, liquidType } = req.body;
+    const view = requestedView(req);
+    if (!view) return badView(res);
+
+    const filters = queryFilters(req.body);
 
     // Basic input validation
-    if (!containerType && !material && !size && !flow && !liquidType) {
+    if (!filters || Object.keys(filters).length === 0) {
       return res.status(400).json({
         success: false,
-        error: 'At least one search field must be provided.'
+        error: `At least one search field must be provided, as a string: ${helper.INDEXED_ATTRIBUTES.join(', ')}.`
       });
     }
 
-    // Map frontend fields to backend model
-    // const filters = {
-    //   category: liquidType || null,
-    //   material: material || null,
-    //   flow_rate: flow || null,
-    //   size: size || null,
-    //   container_type: containerType || null
-    // };
-    const filters = {};
-
-    if (liquidType) filters.liquid_type  = liquidType;
-    if (material) filters.material = material;
-    if (flow) filters.flow_rate = flow;
-    if (size) filters.size = size;
-    if (containerType) filters.container_type = containerType;
-
     const results = await helper.queryTaps(filters);
 
     if (!results || results.length === 0) {
@@ -87,7 +178,7 @@ router.post('/taps/query', rateLimitCheck, async (req, res) => {
     res.status(200).json({
       success: true,
       count: results.length,
-      data: results,
+      data: helper.projectTaps(results, view),
       message: 'Matching taps retrieved successfully.'
     });
 
@@ -101,6 +192,94 @@ router.post('/taps/query', rateLimitCheck, async (req, res) => {
   }
 });
 
+// GET /api/public/taps/changes?since=<version> - Delta sync
+// Returns the taps created or updated after `since` (upserts) and the ids to
+// drop (deleted), plus the version to ask from next time. When the change log
+// no longer reaches back that far the answer is 410 and the client reloads
+// the full catalog. Registered before /taps/:id so "changes" isn't taken as an id.
+// Accepts ?view=summary like GET /taps.
+router.get('/taps/changes', rateLimitCheck, async (req, res) => {
+  try {
+    const view = requestedView(req);
+    if (!view) return badView(res);
+
+    const since = parseInt(req.query.since, 10);
+    if (!Number.isInteger(since) || since < 0 || String(since) !== req.query.since) {
+      return res.status(400).json({
+        success: false,
+        error: 'since must be a catalog version'
+      });
+    }
+
+    const changes = await helper.getCatalogChanges(since);
+    res.set('ETag', catalogEtag(changes.version, view));
+    res.set('Cache-Control', 'no-cache');
+
+    if (changes.truncated) {
+      return res.status(410).json({
+        success: false,
+        version: changes.version,
+        error: 'Change log no longer covers this version, reload the full catalog'
+      });
+    }
+
+    res.status(200).json({
+      success: true,
+      since: since,
+      version: changes.version,
+      upserts: helper.projectTaps(changes.upserts, view),
+      deleted: changes.deleted,
+      message: "catalog changes retrieved successfully"
+    });
+  } catch (e) {
+    console.error("Error fetching catalog changes:", e);
+    res.status(500).json({
+      success: false,
+      error: "server error",
+      message: e.message
+    });
+  }
+});
+
+// most ids one GET /taps/batch may ask for
+const MAX_BATCH_IDS = 50;
+
+// GET /api/public/taps/batch?ids=<id>,<id>,... - Several taps in one request
+// Lets the app fetch the details of many list rows for one rate-limit token.
+// Taps come back in the order asked for; ids that don't exist are listed in
+// `missing`. Registered before /taps/:id so "batch" isn't taken as an id.
+router.get('/taps/batch', rateLimitCheck, async (req, res) => {
+  try {
+    const raw = typeof req.query.ids === 'string' ? req.query.ids : '';
+    const ids = [...new Set(raw.split(',').map(id => id.trim()).filter(id => id.length > 0))];
+
+    if (ids.length === 0 || ids.length > MAX_BATCH_IDS) {
+      return res.status(400).json({
+        success: false,
+        error: `ids must list between 1 and ${MAX_BATCH_IDS} tap ids`
+      });
+    }
+
+    const taps = await helper.getTapsByIds(ids);
+    const found = new Set(taps.map(tap => tap.id));
+
+    res.status(200).json({
+      success: true,
+      count: taps.length,
+      data: taps,
+      missing: ids.filter(id => !found.has(id)),
+      message: "Taps retrieved successfully"
+    });
+  } catch (e) {
+    console.error("Error fetching taps:", e);
+    res.status(500).json({
+      success: false,
+      error: "Failed to fetch taps",
+      message: e.message
+    });
+  }
+});
+
 // GET /api/taps/:id - Get single tap by ID
 router.get('/taps/:id', rateLimitCheck, async (req, res) => {
   try {
@@ -54,6 +54,29 @@ async function uploadFileToFirebase(file, folder = "images") {
   });
 }
 
+/**
+ * Upload generated bytes (e.g. a thumbnail) to Firebase
+ * @param {Buffer} buffer
+ * @param {string} destination - Path inside Firebase Storage
+ * @param {string} contentType
+ * @returns {Promise<string>} The public URL
+ */
+
+async function uploadBufferToFirebase(buffer, destination, contentType) {
+  const file = bucket.file(destination);
+  await file.save(buffer, {
+    public: true,
+    resumable: false,
+    metadata: {
+      contentType,
+      cacheControl: "public, max-age=31536000"
+    }
+  });
+
+  // plain public URL, a signed one is several times longer and these go into every list row
+  return file.publicUrl();
+}
+
 /**
  * Remove file from Firebase
  * @param {string} filePath 
@@ -77,5 +100,5 @@ async function removeFileFromFirebase(filePath) {
 }
 
 
-module.exports = { uploadFileToFirebase, removeFileFromFirebase };
+module.exports = { uploadFileToFirebase, uploadBufferToFirebase, removeFileFromFirebase };
 
@@ -0,0 +1,75 @@
+// image storage
+// Where tap images live. Firebase Storage by default; with IMAGE_STORAGE=local they are
+// written under Server/uploads and served from /uploads instead, so uploads can be tried
+// out without the Firebase service account.
+const fs = require("fs");
+const path = require("path");
+
+const LOCAL_DIR = path.join(__dirname, "..", "uploads");
+// read on use, this module can be loaded before dotenv has run
+function useLocal() {
+  return process.env.IMAGE_STORAGE === "local";
+}
+
+// required lazily, loading it initialises Firebase with the service account
+function firebase() {
+  return require("./FIleupload");
+}
+
+function localUrl(destination) {
+  const base = process.env.PUBLIC_BASE_URL || `http://localhost:${process.env.PORT || 3000}`;
+  return `${base}/uploads/${destination.split("/").map(encodeURIComponent).join("/")}`;
+}
+
+async function writeLocal(destination, data) {
+  const target = path.join(LOCAL_DIR, destination);
+  await fs.promises.mkdir(path.dirname(target), { recursive: true });
+  await fs.promises.writeFile(target, data);
+}
+
+/**
+ * Stores an uploaded file (multer style: {path, originalname}) under folder.
+ * @returns {Promise<string>} URL the image can be downloaded from
+ */
+async function uploadImageFile(file, folder = "images") {
+  if (!useLocal()) return firebase().uploadFileToFirebase(file, folder);
+
+  const destination = `${folder}/${Date.now()}_${file.originalname}`;
+  await writeLocal(destination, await fs.promises.readFile(file.path));
+  return localUrl(destination);
+}
+
+/**
+ * Stores generated image bytes at destination (e.g. "taps/variants/x_256.webp").
+ * @returns {Promise<string>} URL the image can be downloaded from
+ */
+async function saveImageBuffer(buffer, destination, contentType) {
+  if (!useLocal()) return firebase().uploadBufferToFirebase(buffer, destination, contentType);
+
+  await writeLocal(destination, buffer);
+  return localUrl(destination);
+}
+
+// storage path of an image URL handed out by uploadImageFile / saveImageBuffer
+function storagePathOf(url) {
+  let pathname = decodeURIComponent(new URL(url).pathname.substring(1));
+
+  const prefix = useLocal() ? "uploads" : process.env.FIREBASE_STORAGE_BUCKET;
+  if (prefix && pathname.startsWith(prefix + "/")) {
+    pathname = pathname.substring(prefix.length + 1);
+  }
+  return pathname;
+}
+
+/**
+ * Deletes the image behind url.
+ * @returns {Promise<void>}
+ */
+async function removeImage(url) {
+  const filePath = storagePathOf(url);
+  if (!useLocal()) return firebase().removeFileFromFirebase(filePath);
+
+  await fs.promises.unlink(path.join(LOCAL_DIR, filePath));
+}
+
+module.exports = { LOCAL_DIR, useLocal, uploadImageFile, saveImageBuffer, removeImage, storagePathOf };
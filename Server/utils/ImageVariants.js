@@ -0,0 +1,79 @@
+// image variants
+// Downscaled copies of a tap image, made once at upload so the app can download a
+// thumbnail sized for its screen instead of the full upload for every list row.
+// They are listed on the tap as image_variants: "<url> <size>w, <url> <size>w, ...", smallest
+// first. A variant's shorter side is <size> px, enough for the app's size x size center
+// crop without upscaling. image_url stays the original.
+// sharp is installed separately (install.bat, `npm install sharp@0.34.4`) and loaded on first
+// use, so a server without it still starts and takes uploads, just without variants; the app
+// then loads image_url.
+const path = require("path");
+const { saveImageBuffer, removeImage } = require("./ImageStorage");
+
+let sharpModule;
+
+function sharp(input) {
+  if (!sharpModule) {
+    try {
+      sharpModule = require("sharp");
+    } catch (e) {
+      throw new Error("sharp is not installed, run `npm install sharp@0.34.4` to make image variants");
+    }
+  }
+  return sharpModule(input);
+}
+
+// list rows are 100dp: 128 covers mdpi, 256 up to xhdpi, 512 up to xxxhdpi
+const VARIANT_SIZES = [128, 256, 512];
+const WEBP_QUALITY = 75;
+
+/**
+ * Resizes the image down to every VARIANT_SIZES entry its shorter side exceeds and stores them.
+ * @param {Buffer} buffer - The uploaded image
+ * @param {string} originalname - Upload file name, used to name the variants
+ * @param {string} folder - The folder in storage
+ * @returns {Promise<string>} image_variants for the tap, "" when the image is smaller than every size
+ */
+async function createImageVariants(buffer, originalname, folder = "images") {
+  const { width, height } = await sharp(buffer).metadata();
+  const shortSide = Math.min(width || Infinity, height || Infinity);
+  const base = `${folder}/variants/${Date.now()}_${path.parse(originalname).name}`;
+
+  const entries = await Promise.all(VARIANT_SIZES
+    .filter(target => shortSide > target)
+    .map(async target => {
+      const variant = await sharp(buffer)
+        .rotate()
+        .resize({ width: target, height: target, fit: "outside", withoutEnlargement: true })
+        .webp({ quality: WEBP_QUALITY })
+        .toBuffer();
+      const url = await saveImageBuffer(variant, `${base}_${target}.webp`, "image/webp");
+      return `${url} ${target}w`;
+    }));
+
+  return entries.join(", ");
+}
+
+// URLs listed in an image_variants value
+function variantUrls(variants) {
+  if (!variants) return [];
+  return variants.split(",")
+    .map(entry => entry.trim().split(/\s+/)[0])
+    .filter(url => url);
+}
+
+/**
+ * Deletes every variant listed in variants. Failures are logged, not thrown: a leftover
+ * thumbnail must not stop a tap from being updated or deleted.
+ */
+async function removeImageVariants(variants) {
+  await Promise.all(variantUrls(variants).map(async url => {
+    try {
+      await removeImage(url);
+    } catch (e) {
+      console.error("failed to delete image variant:", url, e.message);
+    }
+  }));
+}
+
+module.exports = { VARIANT_SIZES, createImageVariants, removeImageVariants, variantUrls };